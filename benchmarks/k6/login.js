@@ -0,0 +1,66 @@
+// 认证中心表单登录压测：每个 VU 循环执行 GET /login（取 CSRF token 与会话）→ POST /login，统计登录请求的延迟分布。
+// 用于对比平台线程与虚拟线程模式（APP_VIRTUAL_THREADS=false / true）在高并发登录下的 p99，见 README「虚拟线程模式」。
+//
+//   k6 run -e BASE_URL=http://127.0.0.1:8080 -e VUS=5000 benchmarks/k6/login.js
+//
+// 可选：USER_PREFIX=loadtest- USER_COUNT=5000 时使用 loadtest-0 … loadtest-4999 轮流登录（可先用 /api/users/import 批量导入），
+// 否则全部使用 USERNAME / PASSWORD（默认 user / password）。
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend, Rate } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://127.0.0.1:8080';
+const VUS = parseInt(__ENV.VUS || '5000', 10);
+const USER_PREFIX = __ENV.USER_PREFIX || '';
+const USER_COUNT = parseInt(__ENV.USER_COUNT || '0', 10);
+
+const loginDuration = new Trend('login_duration', true);
+const loginSuccess = new Rate('login_success');
+
+export const options = {
+	scenarios: {
+		logins: {
+			executor: 'ramping-vus',
+			startVUs: 0,
+			stages: [
+				{ duration: __ENV.RAMP || '30s', target: VUS },
+				{ duration: __ENV.HOLD || '2m', target: VUS },
+				{ duration: '10s', target: 0 },
+			],
+			gracefulRampDown: '10s',
+		},
+	},
+	thresholds: {
+		login_success: ['rate>0.99'],
+	},
+	summaryTrendStats: ['avg', 'med', 'p(90)', 'p(95)', 'p(99)', 'max'],
+};
+
+function credentials() {
+	if (USER_PREFIX && USER_COUNT > 0) {
+		return { username: `${USER_PREFIX}${(__VU * 7919 + __ITER) % USER_COUNT}`, password: __ENV.PASSWORD || 'password' };
+	}
+	return { username: __ENV.USERNAME || 'user', password: __ENV.PASSWORD || 'password' };
+}
+
+export default function () {
+	// 每轮一个新会话，模拟不同浏览器的首次登录
+	http.cookieJar().clear(BASE_URL);
+	const page = http.get(`${BASE_URL}/login`, { tags: { name: 'GET /login' } });
+	const csrf = page.html().find('input[name="_csrf"]').attr('value');
+	if (!check(page, { 'login page loaded': (r) => r.status === 200 && !!csrf })) {
+		loginSuccess.add(false);
+		return;
+	}
+	const { username, password } = credentials();
+	const res = http.post(`${BASE_URL}/login`, { username, password, _csrf: csrf }, {
+		redirects: 0,
+		tags: { name: 'POST /login' },
+	});
+	loginDuration.add(res.timings.duration);
+	const location = res.headers['Location'] || '';
+	loginSuccess.add(check(res, {
+		'login redirected': (r) => r.status === 302,
+		'login accepted': () => !location.includes('error'),
+	}));
+}
@@ -0,0 +1,93 @@
+package cn.civer.authserver.bench;
+
+import cn.civer.authserver.config.TokenConfig;
+import cn.civer.authserver.service.SigningKeys;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问令牌签发：模拟 SAS JwtGenerator 的流程（组装 header/claims → TokenConfig.jwtTokenCustomizer → 签名）。
+ * customizeOnly 单独测量 customizer（roles 声明、JWS 算法）开销；各签名算法的对比见 {@link SigningAlgorithmBenchmark}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessTokenEncodingBenchmark {
+
+	private OAuth2TokenCustomizer<JwtEncodingContext> customizer;
+	private JwtEncoder jwtEncoder;
+	private UsernamePasswordAuthenticationToken principal;
+
+	@Setup
+	public void setUp() {
+		TokenConfig tokenConfig = new TokenConfig();
+		JWKSource<SecurityContext> jwkSource = BenchKeys.rsaJwkSource();
+		this.customizer = tokenConfig.jwtTokenCustomizer(new SigningKeys(jwkSource));
+		this.jwtEncoder = tokenConfig.jwtEncoder(jwkSource);
+		User user = new User("alice", "", AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+		this.principal = UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+	}
+
+	@Benchmark
+	public String encodeAccessToken() {
+		JwtEncodingContext context = newContext();
+		customizer.customize(context);
+		JwsHeader header = context.getJwsHeader().build();
+		JwtClaimsSet claims = context.getClaims().build();
+		return jwtEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+	}
+
+	@Benchmark
+	public JwtClaimsSet customizeOnly() {
+		JwtEncodingContext context = newContext();
+		customizer.customize(context);
+		return context.getClaims().build();
+	}
+
+	private JwtEncodingContext newContext() {
+		Instant now = Instant.now();
+		JwsHeader.Builder header = JwsHeader.with(SignatureAlgorithm.RS256);
+		JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+				.issuer("http://127.0.0.1:8080")
+				.subject("alice")
+				.audience(List.of("client-usermanage"))
+				.issuedAt(now)
+				.notBefore(now)
+				.expiresAt(now.plusSeconds(1800))
+				.id(UUID.randomUUID().toString())
+				.claim("scope", List.of("openid", "profile"));
+		return JwtEncodingContext.with(header, claims)
+				.principal(principal)
+				.tokenType(OAuth2TokenType.ACCESS_TOKEN)
+				.build();
+	}
+}
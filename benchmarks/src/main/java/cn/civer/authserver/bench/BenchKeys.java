@@ -0,0 +1,25 @@
+package cn.civer.authserver.bench;
+
+import cn.civer.authserver.service.SigningKeys;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+/**
+ * 基准测试用的签名密钥（与认证中心按 app.jwk.algorithm 生成的密钥一致，但不依赖数据库）。
+ */
+final class BenchKeys {
+
+	private BenchKeys() {
+	}
+
+	static JWKSource<SecurityContext> jwkSource(String algorithm) {
+		return new ImmutableJWKSet<>(new JWKSet(SigningKeys.generate(JWSAlgorithm.parse(algorithm))));
+	}
+
+	static JWKSource<SecurityContext> rsaJwkSource() {
+		return jwkSource("RS256");
+	}
+}
@@ -0,0 +1,116 @@
+package cn.civer.authserver.bench;
+
+import cn.civer.authserver.service.RegisteredClientEndpointIndex;
+import cn.civer.authserver.service.SsoLogoutService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SsoLogoutService.isAllowedLogoutRedirect：10 / 100 / 1000 个客户端（每个 2 个 redirect_uri），命中最后一个客户端的 host。
+ * legacyScanAndParse 复现改造前的算法（逐行拆分并解析全部 redirect_uris），但数据在内存中，不含查库开销，
+ * 因此是旧实现的下限；indexed 走 {@link RegisteredClientEndpointIndex}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogoutRedirectBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int clients;
+
+	private List<String> redirectUriRows;
+	private SsoLogoutService ssoLogoutService;
+	private String allowedRedirect;
+	private String rejectedRedirect;
+
+	@Setup
+	public void setUp() {
+		// 空表：索引全部由 upsert 构建，无需数据库
+		JdbcTemplate emptyTable = new JdbcTemplate() {
+			@Override
+			public void query(String sql, RowCallbackHandler rch) {
+			}
+		};
+		RegisteredClientEndpointIndex index = new RegisteredClientEndpointIndex(emptyTable, new SimpleMeterRegistry());
+		this.redirectUriRows = new ArrayList<>(clients);
+		for (int i = 0; i < clients; i++) {
+			String a = "https://app" + i + ".example.com/login/oauth2/code/oidc-client";
+			String b = "http://127.0.0.1:" + (10000 + i) + "/login/oauth2/code/oidc-client";
+			redirectUriRows.add(a + "," + b);
+			index.upsert(RegisteredClient.withId(UUID.randomUUID().toString())
+					.clientId("client-" + i)
+					.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+					.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+					.redirectUri(a)
+					.redirectUri(b)
+					.build());
+		}
+		this.ssoLogoutService = new SsoLogoutService(null, null, AuthorizationServerSettings.builder().build(),
+				null, null, index, null);
+		this.allowedRedirect = "https://app" + (clients - 1) + ".example.com/";
+		this.rejectedRedirect = "https://evil.example.org/";
+	}
+
+	@Benchmark
+	public boolean indexedAllowed() {
+		return ssoLogoutService.isAllowedLogoutRedirect(allowedRedirect);
+	}
+
+	@Benchmark
+	public boolean indexedRejected() {
+		return ssoLogoutService.isAllowedLogoutRedirect(rejectedRedirect);
+	}
+
+	@Benchmark
+	public boolean legacyScanAndParseAllowed() {
+		return legacyIsAllowed(allowedRedirect);
+	}
+
+	private boolean legacyIsAllowed(String redirectUri) {
+		try {
+			URI uri = new URI(redirectUri.trim());
+			String host = uri.getHost();
+			if (host == null || host.isBlank()) return false;
+			Set<String> allowedHosts = new HashSet<>();
+			for (String blobs : redirectUriRows) {
+				for (String one : blobs.split(",")) {
+					if (one.isBlank()) continue;
+					try {
+						URI u = new URI(one.trim());
+						if (u.getHost() != null) allowedHosts.add(u.getHost().toLowerCase());
+					} catch (Exception ignored) { }
+				}
+			}
+			return allowedHosts.contains(host.toLowerCase());
+		} catch (Exception e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package cn.civer.authserver.bench;
+
+import cn.civer.authserver.service.LogoutTokenMinter;
+import cn.civer.authserver.service.SigningKeys;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次全局退出需要签发的 logout_token，按客户端数量参数化：
+ * legacyNewEncoderPerClient 为改造前的做法（每次退出新建编码器，每个客户端一个 token），
+ * perClient 为复用 {@link LogoutTokenMinter} 的单 aud 模式，multiAudience 为每次退出只签一个 token。
+ * 单位为「次退出 / 秒」。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogoutTokenSigningBenchmark {
+
+	private static final String ISSUER = "http://127.0.0.1:8080";
+
+	@Param({ "1", "10", "100" })
+	public int clients;
+
+	private JWKSource<SecurityContext> jwkSource;
+	private LogoutTokenMinter minter;
+	private List<String> clientIds;
+
+	@Setup
+	public void setUp() {
+		this.jwkSource = BenchKeys.rsaJwkSource();
+		this.minter = new LogoutTokenMinter(new NimbusJwtEncoder(jwkSource), new SigningKeys(jwkSource));
+		this.clientIds = new ArrayList<>(clients);
+		for (int i = 0; i < clients; i++) {
+			clientIds.add("client-" + i);
+		}
+	}
+
+	@Benchmark
+	public void legacyNewEncoderPerClient(Blackhole bh) {
+		JwtEncoder encoder = new NimbusJwtEncoder(jwkSource);
+		for (String clientId : clientIds) {
+			JwtClaimsSet claims = JwtClaimsSet.builder()
+					.issuer(ISSUER)
+					.subject("alice")
+					.audience(Collections.singletonList(clientId))
+					.issuedAt(Instant.now())
+					.id(UUID.randomUUID().toString())
+					.claim("events", Collections.singletonMap(
+							"http://schemas.openid.net/event/backchannel-logout", new HashMap<>()))
+					.claim("sid", "alice")
+					.build();
+			bh.consume(encoder.encode(JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(),
+					claims)).getTokenValue());
+		}
+	}
+
+	@Benchmark
+	public void perClient(Blackhole bh) {
+		for (String clientId : clientIds) {
+			bh.consume(minter.mint(ISSUER, "alice", List.of(clientId)));
+		}
+	}
+
+	@Benchmark
+	public String multiAudience() {
+		return minter.mint(ISSUER, "alice", clientIds);
+	}
+}
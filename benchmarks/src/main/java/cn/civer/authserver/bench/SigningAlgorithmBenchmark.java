@@ -0,0 +1,123 @@
+package cn.civer.authserver.bench;
+
+import cn.civer.authserver.config.TokenConfig;
+import cn.civer.authserver.service.LogoutTokenMinter;
+import cn.civer.authserver.service.SigningKeys;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * app.jwk.algorithm 各取值的对比：签发访问令牌（经 TokenConfig.jwtTokenCustomizer）、签发 logout_token、客户端验签的吞吐，
+ * 以及 token 长度（辅助指标 tokenBytes，即写入 oauth2_authorization.access_token_value 与网络传输的字节数）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningAlgorithmBenchmark {
+
+	@Param({ "RS256", "ES256", "ES384" })
+	public String algorithm;
+
+	private OAuth2TokenCustomizer<JwtEncodingContext> customizer;
+	private JwtEncoder jwtEncoder;
+	private JwtDecoder jwtDecoder;
+	private LogoutTokenMinter logoutTokenMinter;
+	private UsernamePasswordAuthenticationToken principal;
+	private String signedToken;
+
+	/** 以 EVENTS 方式上报的 token 长度（每次赋值而非累加，结果即单个 token 的字节数） */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class TokenSize {
+		public long tokenBytes;
+	}
+
+	@Setup
+	public void setUp() {
+		TokenConfig tokenConfig = new TokenConfig();
+		JWKSource<SecurityContext> jwkSource = BenchKeys.jwkSource(algorithm);
+		SigningKeys signingKeys = new SigningKeys(jwkSource);
+		this.customizer = tokenConfig.jwtTokenCustomizer(signingKeys);
+		this.jwtEncoder = tokenConfig.jwtEncoder(jwkSource);
+		this.logoutTokenMinter = new LogoutTokenMinter(jwtEncoder, signingKeys);
+		this.jwtDecoder = NimbusJwtDecoder.withJwkSource(jwkSource)
+				.jwsAlgorithm(SignatureAlgorithm.from(algorithm))
+				.build();
+		User user = new User("alice", "", AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+		this.principal = UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+		this.signedToken = encode();
+	}
+
+	@Benchmark
+	public String signAccessToken(TokenSize size) {
+		String token = encode();
+		size.tokenBytes = token.length();
+		return token;
+	}
+
+	@Benchmark
+	public String signLogoutToken(TokenSize size) {
+		String token = logoutTokenMinter.mint("http://127.0.0.1:8080", "alice", List.of("client-usermanage"));
+		size.tokenBytes = token.length();
+		return token;
+	}
+
+	@Benchmark
+	public Jwt verifyAccessToken() {
+		return jwtDecoder.decode(signedToken);
+	}
+
+	private String encode() {
+		Instant now = Instant.now();
+		JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+				.issuer("http://127.0.0.1:8080")
+				.subject("alice")
+				.audience(List.of("client-usermanage"))
+				.issuedAt(now)
+				.notBefore(now)
+				.expiresAt(now.plusSeconds(1800))
+				.id(UUID.randomUUID().toString())
+				.claim("scope", List.of("openid", "profile"));
+		JwtEncodingContext context = JwtEncodingContext.with(JwsHeader.with(SignatureAlgorithm.RS256), claims)
+				.principal(principal)
+				.tokenType(OAuth2TokenType.ACCESS_TOKEN)
+				.build();
+		customizer.customize(context);
+		return jwtEncoder.encode(JwtEncoderParameters.from(context.getJwsHeader().build(), context.getClaims().build()))
+				.getTokenValue();
+	}
+}
@@ -0,0 +1,48 @@
+package cn.civer.authserver.controller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RegisteredClientController.parseRedirectUris（包级可见，因此本类放在同一包下）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedirectUriParsingBenchmark {
+
+	@Param({ "1", "5", "20" })
+	public int uris;
+
+	private String input;
+
+	@Setup
+	public void setUp() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < uris; i++) {
+			if (i > 0) sb.append(i % 2 == 0 ? ",\r\n" : "\n");
+			sb.append(" https://app").append(i).append(".example.com/login/oauth2/code/oidc-client?tenant=").append(i);
+		}
+		this.input = sb.toString();
+	}
+
+	@Benchmark
+	public List<String> parseRedirectUris() {
+		return RegisteredClientController.parseRedirectUris(input);
+	}
+}
@@ -1,5 +1,6 @@
 package cn.civer.client.config;
 
+import cn.civer.client.session.IndexedSessionRegistry;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -12,22 +13,33 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.session.SessionRegistry;
-import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.converter.ClaimTypeConverter;
 import org.springframework.security.oauth2.core.oidc.user.DefaultOidcUser;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.session.HttpSessionEventPublisher;
 
 import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 @EnableWebSecurity
@@ -91,9 +103,38 @@ public class SecurityConfig {
 		return http.build();
 	}
 
+	/**
+	 * 按 sub / sid 索引的会话登记表，Back-Channel Logout 时 O(1) 找到用户的会话（见 SsoLogoutController）。
+	 */
 	@Bean
-	public SessionRegistry sessionRegistry() {
-		return new SessionRegistryImpl();
+	public IndexedSessionRegistry sessionRegistry() {
+		return new IndexedSessionRegistry();
+	}
+
+	/** 把容器的会话创建 / 销毁事件转发为 Spring 事件，IndexedSessionRegistry 据此清理已销毁的会话。 */
+	@Bean
+	public HttpSessionEventPublisher httpSessionEventPublisher() {
+		return new HttpSessionEventPublisher();
+	}
+
+	/**
+	 * ID Token 解码器：默认的 OidcIdTokenDecoderFactory 只接受一种算法（RS256），认证中心切换签名算法（app.jwk.algorithm）
+	 * 的轮换期间新旧算法的 token 并存，因此接受 app.jwt.algorithms 中的全部算法；校验规则与默认工厂一致。
+	 */
+	@Bean
+	public JwtDecoderFactory<ClientRegistration> idTokenDecoderFactory(
+			@Value("${app.jwt.algorithms:RS256,ES256,ES384}") List<String> algorithms) {
+		Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+		return registration -> decoders.computeIfAbsent(registration.getRegistrationId(), id -> {
+			NimbusJwtDecoder decoder = NimbusJwtDecoder
+					.withJwkSetUri(registration.getProviderDetails().getJwkSetUri())
+					.jwsAlgorithms(algs -> algorithms.forEach(a -> algs.add(SignatureAlgorithm.from(a.trim()))))
+					.build();
+			decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+					new JwtTimestampValidator(), new OidcIdTokenValidator(registration)));
+			decoder.setClaimSetConverter(new ClaimTypeConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverters()));
+			return decoder;
+		});
 	}
 
 	private void onOAuth2LoginFailure(HttpServletRequest request, HttpServletResponse response,
@@ -1,26 +1,20 @@
 package cn.civer.client.controller;
 
-import org.springframework.security.core.session.SessionInformation;
-import org.springframework.security.core.session.SessionRegistry;
+import cn.civer.client.session.IndexedSessionRegistry;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 public class SsoLogoutController {
 
-	private final SessionRegistry sessionRegistry;
-
-	@org.springframework.beans.factory.annotation.Value("${spring.security.oauth2.client.provider.auth-server.issuer-uri}")
-	private String issuerUri;
-
-	@org.springframework.beans.factory.annotation.Value("${spring.security.oauth2.client.registration.oidc-client.client-id}")
-	private String clientId;
+	private final IndexedSessionRegistry sessionRegistry;
+	private final org.springframework.security.oauth2.jwt.JwtDecoder logoutTokenDecoder;
 
-	public SsoLogoutController(SessionRegistry sessionRegistry) {
+	public SsoLogoutController(IndexedSessionRegistry sessionRegistry,
+			org.springframework.security.oauth2.jwt.JwtDecoder logoutTokenDecoder) {
 		this.sessionRegistry = sessionRegistry;
+		this.logoutTokenDecoder = logoutTokenDecoder;
 	}
 
 	@PostMapping("/api/sso-logout")
@@ -30,28 +24,16 @@ public class SsoLogoutController {
 		}
 
 		try {
-			// 1. Initialize Decoder
-			org.springframework.security.oauth2.jwt.JwtDecoder decoder = org.springframework.security.oauth2.jwt.NimbusJwtDecoder
-					.withJwkSetUri(issuerUri + "/oauth2/jwks")
-					.build();
-
-			// 2. Decode & Verify
-			org.springframework.security.oauth2.jwt.Jwt jwt = decoder.decode(logoutToken);
-
-			// 3. Validate Claims
-			if (!jwt.getAudience().contains(clientId)) {
-				throw new IllegalStateException("Invalid audience: " + jwt.getAudience());
-			}
-			if (!jwt.getIssuer().toString().equals(issuerUri)) {
-				throw new IllegalStateException("Invalid issuer: " + jwt.getIssuer());
-			}
+			// 1. Decode & Verify（签名、iss、aud 由 LogoutTokenDecoderConfig 中的共享解码器校验，JWKS 走缓存）
+			org.springframework.security.oauth2.jwt.Jwt jwt = logoutTokenDecoder.decode(logoutToken);
 
-			// 4. Extract Subject
+			// 2. Extract Subject
 			String username = jwt.getSubject();
 			System.out.println("OIDC Logout received for user: " + username);
 
-			// 5. Invalidate Session
-			expireUserSessions(username);
+			// 3. Invalidate Session（按 sub / sid 索引直接定位，不再遍历全部在线用户）
+			int expired = sessionRegistry.expireBySubject(username) + sessionRegistry.expireBySid(jwt.getClaimAsString("sid"));
+			System.out.println("Invalidated " + expired + " session(s) for user: " + username);
 
 			return "Logged out";
 
@@ -60,27 +42,4 @@ public class SsoLogoutController {
 			return "Bad Request";
 		}
 	}
-
-	private void expireUserSessions(String username) {
-		List<Object> allPrincipals = sessionRegistry.getAllPrincipals();
-		for (Object principal : allPrincipals) {
-			String principalName = null;
-			if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-				principalName = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-			} else if (principal instanceof org.springframework.security.oauth2.core.oidc.user.OidcUser) {
-				principalName = ((org.springframework.security.oauth2.core.oidc.user.OidcUser) principal).getName();
-			} else {
-				principalName = principal.toString();
-			}
-
-			if (username.equals(principalName)) {
-				List<org.springframework.security.core.session.SessionInformation> sessions = sessionRegistry
-						.getAllSessions(principal, false);
-				for (org.springframework.security.core.session.SessionInformation session : sessions) {
-					session.expireNow();
-				}
-				System.out.println("Invalidated session for user: " + username);
-			}
-		}
-	}
 }
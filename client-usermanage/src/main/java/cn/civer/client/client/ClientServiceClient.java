@@ -1,7 +1,10 @@
 package cn.civer.client.client;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.service.annotation.DeleteExchange;
 import org.springframework.web.service.annotation.GetExchange;
 import org.springframework.web.service.annotation.HttpExchange;
@@ -16,8 +19,10 @@ import java.util.List;
 @HttpExchange("/api")
 public interface ClientServiceClient {
 
+	/** ifNoneMatch 与服务端 ETag 一致时返回 304、响应体为空 */
 	@GetExchange("/clients")
-	List<ClientSummaryDto> listClients();
+	ResponseEntity<List<ClientSummaryDto>> listClients(
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
 
 	@GetExchange("/clients/{clientId}")
 	ClientSummaryDto getClient(@PathVariable("clientId") String clientId);
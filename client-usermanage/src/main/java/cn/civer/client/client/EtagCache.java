@@ -0,0 +1,54 @@
+package cn.civer.client.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 认证中心 GET 接口的条件请求缓存：按 key 保存上次响应的 (ETag, 响应体)，下次带 If-None-Match 请求，
+ * 收到 304 时返回缓存的响应体。每次都会请求认证中心（权限与修改照常生效），省去的是响应体的传输与反序列化。
+ * 容量有限，按访问顺序淘汰最久未用的条目。返回的对象为缓存中的同一实例，调用方不应修改。
+ */
+public class EtagCache<K, V> {
+
+	private final Map<K, Entry<V>> entries;
+
+	public EtagCache(int maximumSize) {
+		this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return size() > maximumSize;
+			}
+		});
+	}
+
+	/**
+	 * @param request 以 If-None-Match 的取值（无缓存时为 null）发起请求
+	 */
+	public V get(K key, Function<String, ResponseEntity<V>> request) {
+		Entry<V> cached = entries.get(key);
+		ResponseEntity<V> response = request.apply(cached != null ? cached.etag() : null);
+		if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && cached != null) {
+			return cached.value();
+		}
+		V body = response.getBody();
+		String etag = response.getHeaders().getETag();
+		if (body != null && etag != null) {
+			entries.put(key, new Entry<>(etag, body));
+		} else {
+			entries.remove(key);
+		}
+		return body;
+	}
+
+	public void evict(K key) {
+		entries.remove(key);
+	}
+
+	private record Entry<V>(String etag, V value) {
+	}
+}
@@ -0,0 +1,109 @@
+package cn.civer.client.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用认证中心的并发上限与重试，须作为 RestClient 的最后一个拦截器（每次重试都会重新创建底层请求）：
+ * <ul>
+ * <li>同时在途的请求不超过 max-concurrency，排队超过 acquire-timeout 直接失败，认证中心变慢时不会占满 Tomcat 线程；</li>
+ * <li>GET / HEAD 在连接失败、超时或 502/503/504 时按指数退避重试，其它方法不重试（可能已在服务端生效）。</li>
+ * </ul>
+ */
+public class ResilientRequestInterceptor implements ClientHttpRequestInterceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(ResilientRequestInterceptor.class);
+
+	private static final Set<HttpMethod> RETRYABLE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD);
+
+	private final Semaphore permits;
+	private final Duration acquireTimeout;
+	private final int maxAttempts;
+	private final Duration backoff;
+
+	/**
+	 * @param maxConcurrency 同时在途的最大请求数
+	 * @param acquireTimeout 等待并发名额的最长时间
+	 * @param maxAttempts    GET / HEAD 的最大尝试次数（含首次）
+	 * @param backoff        首次重试前的等待时间，之后每次翻倍
+	 */
+	public ResilientRequestInterceptor(int maxConcurrency, Duration acquireTimeout, int maxAttempts, Duration backoff) {
+		this.permits = new Semaphore(maxConcurrency);
+		this.acquireTimeout = acquireTimeout;
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.backoff = backoff;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		acquire(request);
+		try {
+			int attempts = RETRYABLE_METHODS.contains(request.getMethod()) ? maxAttempts : 1;
+			for (int attempt = 1; ; attempt++) {
+				ClientHttpResponse response;
+				try {
+					response = execution.execute(request, body);
+				} catch (IOException e) {
+					if (attempt >= attempts || e instanceof InterruptedIOException && Thread.currentThread().isInterrupted()) {
+						throw e;
+					}
+					log.debug("[auth-server] {} {} failed ({}), retry {}/{}", request.getMethod(), request.getURI().getPath(),
+							e.getMessage(), attempt, attempts - 1);
+					pause(attempt);
+					continue;
+				}
+				if (attempt < attempts && isTransient(response)) {
+					log.debug("[auth-server] {} {} returned {}, retry {}/{}", request.getMethod(),
+							request.getURI().getPath(), response.getStatusCode().value(), attempt, attempts - 1);
+					response.close();
+					pause(attempt);
+					continue;
+				}
+				return response;
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void acquire(HttpRequest request) throws IOException {
+		try {
+			if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+				throw new IOException("Too many concurrent requests to auth server, rejected " + request.getMethod() + " "
+						+ request.getURI().getPath());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for an auth server connection slot");
+		}
+	}
+
+	private static boolean isTransient(ClientHttpResponse response) throws IOException {
+		int status = response.getStatusCode().value();
+		return status == HttpStatus.BAD_GATEWAY.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+				|| status == HttpStatus.GATEWAY_TIMEOUT.value();
+	}
+
+	private void pause(int attempt) throws InterruptedIOException {
+		try {
+			Thread.sleep(backoff.multipliedBy(1L << (attempt - 1)));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while backing off before retry");
+		}
+	}
+}
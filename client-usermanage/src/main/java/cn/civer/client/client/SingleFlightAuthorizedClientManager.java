@@ -0,0 +1,83 @@
+package cn.civer.client.client;
+
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 在 {@link OAuth2AuthorizedClientManager} 外加两层：
+ * <ul>
+ * <li>快速路径：access token 距过期还有 refresh-skew 以上时，直接返回 {@link OAuth2AuthorizedClientService} 中保存的令牌（memory 模式为本地 Map，jdbc 会话存储下为共享库的一次主键查询，不访问认证中心）；</li>
+ * <li>单飞刷新：同一用户（registrationId + principal）的并发请求同时发现令牌快过期时，只有一个线程调用认证中心刷新，
+ * 其余等待同一结果。认证中心开启了 refresh token 轮换，并发用同一个 refresh token 刷新会被当作重放而吊销整个授权。</li>
+ * </ul>
+ * 刷新本身委托给 delegate（refreshToken provider，clockSkew 与 refresh-skew 相同），新令牌由 delegate 写回 OAuth2AuthorizedClientService。
+ */
+public class SingleFlightAuthorizedClientManager implements OAuth2AuthorizedClientManager {
+
+	private final OAuth2AuthorizedClientManager delegate;
+	private final OAuth2AuthorizedClientService authorizedClientService;
+	private final Duration refreshSkew;
+	private final Clock clock;
+	private final ConcurrentMap<String, CompletableFuture<OAuth2AuthorizedClient>> inFlight = new ConcurrentHashMap<>();
+
+	public SingleFlightAuthorizedClientManager(OAuth2AuthorizedClientManager delegate,
+			OAuth2AuthorizedClientService authorizedClientService, Duration refreshSkew) {
+		this.delegate = delegate;
+		this.authorizedClientService = authorizedClientService;
+		this.refreshSkew = refreshSkew;
+		this.clock = Clock.systemUTC();
+	}
+
+	@Override
+	public OAuth2AuthorizedClient authorize(OAuth2AuthorizeRequest authorizeRequest) {
+		String registrationId = authorizeRequest.getClientRegistrationId();
+		String principalName = authorizeRequest.getPrincipal().getName();
+		OAuth2AuthorizedClient current = authorizedClientService.loadAuthorizedClient(registrationId, principalName);
+		if (current != null && !expiresSoon(current.getAccessToken())) {
+			return current;
+		}
+		String key = registrationId + '\n' + principalName;
+		CompletableFuture<OAuth2AuthorizedClient> mine = new CompletableFuture<>();
+		CompletableFuture<OAuth2AuthorizedClient> running = inFlight.putIfAbsent(key, mine);
+		if (running != null) {
+			return await(running);
+		}
+		try {
+			// delegate 会重新读取已保存的令牌：若其他线程刚刷新完，这里直接得到新令牌，不会再次刷新
+			OAuth2AuthorizedClient refreshed = delegate.authorize(authorizeRequest);
+			mine.complete(refreshed);
+			return refreshed;
+		} catch (RuntimeException e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	private boolean expiresSoon(OAuth2AccessToken accessToken) {
+		return accessToken.getExpiresAt() != null
+				&& !clock.instant().plus(refreshSkew).isBefore(accessToken.getExpiresAt());
+	}
+
+	private static OAuth2AuthorizedClient await(CompletableFuture<OAuth2AuthorizedClient> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw e;
+		}
+	}
+}
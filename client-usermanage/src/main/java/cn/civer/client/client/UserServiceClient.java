@@ -1,8 +1,12 @@
 package cn.civer.client.client;
 
 import cn.civer.client.service.UserService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.service.annotation.DeleteExchange;
 import org.springframework.web.service.annotation.GetExchange;
 import org.springframework.web.service.annotation.HttpExchange;
@@ -20,6 +24,20 @@ public interface UserServiceClient {
 	@GetExchange("/users")
 	List<UserService.UserDto> getUsers();
 
+	/** 键集分页：after 为上一页的 nextCursor，其余参数为可选过滤条件；ifNoneMatch 与服务端 ETag 一致时返回 304 */
+	@GetExchange("/users/page")
+	ResponseEntity<UserService.UserPage> getUserPage(@RequestParam(value = "after", required = false) Long after,
+			@RequestParam("size") int size,
+			@RequestParam(value = "username", required = false) String username,
+			@RequestParam(value = "role", required = false) String role,
+			@RequestParam(value = "enabled", required = false) Boolean enabled,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+
+	/** 条件请求：ifNoneMatch 与服务端 ETag 一致时返回 304、响应体为空 */
+	@GetExchange("/users/{id}")
+	ResponseEntity<UserService.UserDto> getUser(@PathVariable("id") Long id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+
 	@PostExchange("/users")
 	UserService.UserDto createUser(@RequestBody UserService.UserDto user);
 
@@ -1,21 +1,36 @@
 package cn.civer.client.config;
 
 import cn.civer.client.client.ClientServiceClient;
+import cn.civer.client.client.ResilientRequestInterceptor;
+import cn.civer.client.client.SingleFlightAuthorizedClientManager;
 import cn.civer.client.client.UserServiceClient;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
-import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.support.RestClientAdapter;
 import org.springframework.web.service.invoker.HttpServiceProxyFactory;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 /**
  * 认证中心 HTTP 声明式客户端配置（Spring Boot 4 HTTP Service Client）。
  * 使用 RestClient + HttpServiceProxyFactory 替代 OpenFeign，并自动附加 OAuth2 Bearer 令牌。
@@ -23,29 +38,82 @@ import org.springframework.web.service.invoker.HttpServiceProxyFactory;
 @Configuration
 public class AuthServerHttpClientConfig {
 
+	private static final Logger log = LoggerFactory.getLogger(AuthServerHttpClientConfig.class);
+
+	/**
+	 * 调用认证中心 API 时取当前用户的 access token：距过期不足 refresh-skew 时用 refresh token 提前刷新，
+	 * 同一用户的并发请求只刷新一次（见 {@link SingleFlightAuthorizedClientManager}）。
+	 * 基于 OAuth2AuthorizedClientService 而非 HttpServletRequest，异步线程中同样可用。
+	 */
+	@Bean
+	public OAuth2AuthorizedClientManager authorizedClientManager(
+			ClientRegistrationRepository clientRegistrationRepository,
+			OAuth2AuthorizedClientService authorizedClientService,
+			@Value("${app.oauth2-client.refresh-skew:60s}") Duration refreshSkew) {
+		AuthorizedClientServiceOAuth2AuthorizedClientManager manager =
+				new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrationRepository, authorizedClientService);
+		manager.setAuthorizedClientProvider(OAuth2AuthorizedClientProviderBuilder.builder()
+				.refreshToken(refreshToken -> refreshToken.clockSkew(refreshSkew))
+				.build());
+		return new SingleFlightAuthorizedClientManager(manager, authorizedClientService, refreshSkew);
+	}
+
+	/**
+	 * 调用认证中心的共享 HTTP 客户端（JDK HttpClient，自带连接复用，优先 HTTP/2）；关闭上下文时随 Bean 一起关闭。
+	 */
+	@Bean
+	public HttpClient authServerHttpClient(
+			@Value("${app.auth-server-client.connect-timeout:2s}") Duration connectTimeout) {
+		return HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(connectTimeout)
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.build();
+	}
+
+	/**
+	 * UserServiceClient / ClientServiceClient 共用的 RestClient：读超时、并发上限与 GET 重试见 app.auth-server-client；
+	 * 每个接口的耗时记录在 http.client.requests（按 uri 模板区分，/actuator/metrics/http.client.requests?tag=uri:...）。
+	 */
 	@Bean
 	public RestClient authServerRestClient(
 			@Value("${app.auth-server-url:http://127.0.0.1:8080}") String baseUrl,
-			OAuth2AuthorizedClientService authorizedClientService) {
+			OAuth2AuthorizedClientManager authorizedClientManager,
+			HttpClient authServerHttpClient,
+			ObjectProvider<ObservationRegistry> observationRegistry,
+			@Value("${app.auth-server-client.read-timeout:5s}") Duration readTimeout,
+			@Value("${app.auth-server-client.max-concurrency:50}") int maxConcurrency,
+			@Value("${app.auth-server-client.acquire-timeout:1s}") Duration acquireTimeout,
+			@Value("${app.auth-server-client.max-attempts:3}") int maxAttempts,
+			@Value("${app.auth-server-client.retry-backoff:100ms}") Duration retryBackoff) {
 		String url = (baseUrl == null || baseUrl.isBlank()) ? "http://127.0.0.1:8080" : baseUrl.replaceAll("/$", "");
 		ClientHttpRequestInterceptor oauth2Interceptor = (request, body, execution) -> {
 			Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 			if (authentication instanceof OAuth2AuthenticationToken oauthToken) {
-				OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient(
-						oauthToken.getAuthorizedClientRegistrationId(),
-						oauthToken.getName());
-				if (client != null) {
-					OAuth2AccessToken accessToken = client.getAccessToken();
-					if (accessToken != null) {
-						request.getHeaders().setBearerAuth(accessToken.getTokenValue());
+				try {
+					OAuth2AuthorizedClient client = authorizedClientManager.authorize(OAuth2AuthorizeRequest
+							.withClientRegistrationId(oauthToken.getAuthorizedClientRegistrationId())
+							.principal(oauthToken)
+							.build());
+					if (client != null) {
+						request.getHeaders().setBearerAuth(client.getAccessToken().getTokenValue());
 					}
+				} catch (OAuth2AuthorizationException e) {
+					// refresh token 失效（过期、被吊销）：不带令牌发出，由认证中心返回 401，用户重新登录
+					log.warn("[auth-server] token refresh failed for {}: {}", oauthToken.getName(), e.getError());
 				}
 			}
 			return execution.execute(request, body);
 		};
+		JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(authServerHttpClient);
+		requestFactory.setReadTimeout(readTimeout);
 		return RestClient.builder()
 				.baseUrl(url)
+				.requestFactory(requestFactory)
+				.observationRegistry(observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP))
 				.requestInterceptor(oauth2Interceptor)
+				// 须在最后：重试时重新执行其后的链路
+				.requestInterceptor(new ResilientRequestInterceptor(maxConcurrency, acquireTimeout, maxAttempts, retryBackoff))
 				.build();
 	}
 
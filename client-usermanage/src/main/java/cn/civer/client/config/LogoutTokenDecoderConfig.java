@@ -0,0 +1,61 @@
+package cn.civer.client.config;
+
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Back-Channel Logout 的 logout_token 解码器：全应用共用一个，JWKS 缓存在内存中并提前在后台刷新，
+ * 遇到未知 kid（认证中心轮换了密钥）时才重新拉取，且两次拉取间隔不小于 rate-limit，
+ * 因此大量退出通知不会变成对 /oauth2/jwks 的请求风暴。
+ */
+@Configuration
+public class LogoutTokenDecoderConfig {
+
+	@Bean
+	public JwtDecoder logoutTokenDecoder(
+			@Value("${spring.security.oauth2.client.provider.auth-server.issuer-uri}") String issuerUri,
+			@Value("${spring.security.oauth2.client.registration.oidc-client.client-id}") String clientId,
+			@Value("${app.jwt.algorithms:RS256,ES256,ES384}") List<String> algorithms,
+			@Value("${app.jwt.jwks.cache-ttl:15m}") Duration cacheTtl,
+			@Value("${app.jwt.jwks.refresh-timeout:5s}") Duration refreshTimeout,
+			@Value("${app.jwt.jwks.rate-limit:30s}") Duration rateLimit) throws MalformedURLException {
+		String issuer = stripTrailingSlash(issuerUri);
+		JWKSource<SecurityContext> jwkSource = JWKSourceBuilder
+				.<SecurityContext>create(URI.create(issuer + "/oauth2/jwks").toURL())
+				.cache(cacheTtl.toMillis(), refreshTimeout.toMillis())
+				.refreshAheadCache(true)
+				.rateLimited(rateLimit.toMillis())
+				.retrying(true)
+				.build();
+		NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSource(jwkSource)
+				.jwsAlgorithms(algs -> algorithms.forEach(a -> algs.add(SignatureAlgorithm.from(a.trim()))))
+				.build();
+		decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+				new JwtTimestampValidator(),
+				new JwtClaimValidator<Object>(JwtClaimNames.ISS,
+						iss -> iss != null && issuer.equals(stripTrailingSlash(iss.toString()))),
+				new JwtClaimValidator<List<String>>(JwtClaimNames.AUD,
+						aud -> aud != null && aud.contains(clientId))));
+		return decoder;
+	}
+
+	private static String stripTrailingSlash(String value) {
+		return value != null ? value.replaceAll("/$", "") : "";
+	}
+}
@@ -14,14 +14,23 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.session.SessionRegistry;
-import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.converter.ClaimTypeConverter;
 import org.springframework.security.oauth2.core.oidc.user.DefaultOidcUser;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 
@@ -29,6 +38,8 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 @EnableWebSecurity
@@ -71,10 +82,12 @@ public class SecurityConfig {
 	}
 
 	@Bean
-	public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+	public SecurityFilterChain filterChain(HttpSecurity http, SessionRegistry sessionRegistry) throws Exception {
 		http
 				.authorizeHttpRequests(authorize -> authorize
 						.requestMatchers("/admin/**").hasAuthority("ROLE_ADMIN")
+						.requestMatchers("/actuator/health").permitAll()
+						.requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
 						.requestMatchers("/error", "/login").permitAll()
 						.requestMatchers("/api/sso-logout").permitAll()
 						.anyRequest().authenticated())
@@ -97,13 +110,28 @@ public class SecurityConfig {
 				.sessionManagement(session -> session
 						.maximumSessions(1)
 						.expiredUrl("/")
-						.sessionRegistry(sessionRegistry()));
+						.sessionRegistry(sessionRegistry));
 		return http.build();
 	}
 
+	/**
+	 * ID Token 解码器：默认的 OidcIdTokenDecoderFactory 只接受一种算法（RS256），认证中心切换签名算法（app.jwk.algorithm）
+	 * 的轮换期间新旧算法的 token 并存，因此接受 app.jwt.algorithms 中的全部算法；校验规则与默认工厂一致。
+	 */
 	@Bean
-	public SessionRegistry sessionRegistry() {
-		return new SessionRegistryImpl();
+	public JwtDecoderFactory<ClientRegistration> idTokenDecoderFactory(
+			@Value("${app.jwt.algorithms:RS256,ES256,ES384}") List<String> algorithms) {
+		Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+		return registration -> decoders.computeIfAbsent(registration.getRegistrationId(), id -> {
+			NimbusJwtDecoder decoder = NimbusJwtDecoder
+					.withJwkSetUri(registration.getProviderDetails().getJwkSetUri())
+					.jwsAlgorithms(algs -> algorithms.forEach(a -> algs.add(SignatureAlgorithm.from(a.trim()))))
+					.build();
+			decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+					new JwtTimestampValidator(), new OidcIdTokenValidator(registration)));
+			decoder.setClaimSetConverter(new ClaimTypeConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverters()));
+			return decoder;
+		});
 	}
 
 	/**
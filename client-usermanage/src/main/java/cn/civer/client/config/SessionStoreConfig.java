@@ -0,0 +1,163 @@
+package cn.civer.client.config;
+
+import cn.civer.client.session.IndexedSessionRegistry;
+import cn.civer.client.session.JdbcSessionExpirer;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.security.oauth2.client.JdbcOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.web.session.HttpSessionEventPublisher;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.jdbc.PostgreSqlJdbcIndexedSessionRepositoryCustomizer;
+import org.springframework.session.jdbc.config.annotation.SpringSessionDataSource;
+import org.springframework.session.jdbc.config.annotation.SpringSessionTransactionManager;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+import org.springframework.session.security.SpringSessionBackedSessionRegistry;
+import org.springframework.session.web.http.CookieSerializer;
+import org.springframework.session.web.http.DefaultCookieSerializer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * 会话存储（app.session.store）：
+ * <ul>
+ * <li>memory（默认）：Servlet 容器的进程内会话 + {@link IndexedSessionRegistry}，适合单副本；</li>
+ * <li>jdbc：Spring Session JDBC，会话存放在 PostgreSQL（可与认证中心同库），多副本部署时任一副本收到
+ * Back-Channel Logout 都能按用户删除共享库中的会话（{@link JdbcSessionExpirer}），其余副本随之失效；
+ * 登录得到的令牌（OAuth2AuthorizedClient）同样存放在该库，任一副本都能取到当前用户的 access token。</li>
+ * </ul>
+ */
+@Configuration
+public class SessionStoreConfig {
+
+	@Configuration
+	@ConditionalOnProperty(name = "app.session.store", havingValue = "memory", matchIfMissing = true)
+	static class InMemory {
+
+		/** 按 sub / sid 索引的会话登记表，Back-Channel Logout 时 O(1) 找到用户的会话（见 SsoLogoutController）。 */
+		@Bean
+		public IndexedSessionRegistry sessionRegistry() {
+			return new IndexedSessionRegistry();
+		}
+
+		/** 把容器的会话创建 / 销毁事件转发为 Spring 事件，IndexedSessionRegistry 据此清理已销毁的会话。 */
+		@Bean
+		public HttpSessionEventPublisher httpSessionEventPublisher() {
+			return new HttpSessionEventPublisher();
+		}
+	}
+
+	/**
+	 * 未使用 Spring Boot 的会话自动配置（它要求应用始终有 DataSource），只在 jdbc 模式下创建会话专用的小连接池；
+	 * 表结构见 session-schema.sql（可重复执行），过期会话由 Spring Session 按 cleanup-cron 定时删除。
+	 */
+	@Configuration
+	@ConditionalOnProperty(name = "app.session.store", havingValue = "jdbc")
+	@EnableJdbcHttpSession
+	static class Jdbc {
+
+		@Bean
+		@SpringSessionDataSource
+		public HikariDataSource sessionDataSource(
+				@Value("${app.session.jdbc.url}") String url,
+				@Value("${app.session.jdbc.username}") String username,
+				@Value("${app.session.jdbc.password}") String password,
+				@Value("${app.session.jdbc.maximum-pool-size:5}") int maximumPoolSize) {
+			HikariDataSource dataSource = new HikariDataSource();
+			dataSource.setPoolName("session-pool");
+			dataSource.setJdbcUrl(url);
+			dataSource.setUsername(username);
+			dataSource.setPassword(password);
+			dataSource.setMaximumPoolSize(maximumPoolSize);
+			return dataSource;
+		}
+
+		/** 本模块没有 Boot 的 JDBC 自动配置（也就没有事务管理器），会话读写的事务由这里提供。 */
+		@Bean
+		@SpringSessionTransactionManager
+		public PlatformTransactionManager sessionTransactionManager(@SpringSessionDataSource DataSource sessionDataSource) {
+			return new DataSourceTransactionManager(sessionDataSource);
+		}
+
+		@Bean
+		public DataSourceInitializer sessionSchemaInitializer(@SpringSessionDataSource DataSource sessionDataSource,
+				@Value("${app.session.jdbc.initialize-schema:true}") boolean initializeSchema) {
+			DataSourceInitializer initializer = new DataSourceInitializer();
+			initializer.setDataSource(sessionDataSource);
+			initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("session-schema.sql")));
+			initializer.setEnabled(initializeSchema);
+			return initializer;
+		}
+
+		/** 属性写入改用 PostgreSQL 的 INSERT ... ON CONFLICT。 */
+		@Bean
+		public PostgreSqlJdbcIndexedSessionRepositoryCustomizer postgreSqlSessionRepositoryCustomizer() {
+			return new PostgreSqlJdbcIndexedSessionRepositoryCustomizer();
+		}
+
+		/** 沿用 server.servlet.session.timeout 作为会话超时。 */
+		@Bean
+		public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> sessionTimeoutCustomizer(
+				@Value("${server.servlet.session.timeout:30m}") Duration timeout) {
+			return repository -> repository.setDefaultMaxInactiveInterval(timeout);
+		}
+
+		/** 过期会话的清理周期；@EnableJdbcHttpSession 的 cleanupCron 属性不解析 ${...} 占位符，因此在这里设置。 */
+		@Bean
+		public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> sessionCleanupCustomizer(
+				@Value("${app.session.jdbc.cleanup-cron:0 * * * * *}") String cleanupCron) {
+			return repository -> repository.setCleanupCron(cleanupCron);
+		}
+
+		/** 沿用 server.servlet.session.cookie 的名称与域，切换存储后 Cookie 与退出时删除的 Cookie 保持一致。 */
+		@Bean
+		public CookieSerializer cookieSerializer(
+				@Value("${server.servlet.session.cookie.name}") String cookieName,
+				@Value("${server.servlet.session.cookie.domain:}") String cookieDomain) {
+			DefaultCookieSerializer serializer = new DefaultCookieSerializer();
+			serializer.setCookieName(cookieName);
+			if (!cookieDomain.isBlank()) {
+				serializer.setDomainName(cookieDomain);
+			}
+			return serializer;
+		}
+
+		/** maximumSessions(1) 的并发会话控制改为查共享库（按 PRINCIPAL_NAME 索引），跨副本生效。 */
+		@Bean
+		public SessionRegistry sessionRegistry(
+				FindByIndexNameSessionRepository<? extends org.springframework.session.Session> sessionRepository) {
+			return new SpringSessionBackedSessionRegistry<>(sessionRepository);
+		}
+
+		/**
+		 * 令牌改存共享库的 oauth2_authorized_client 表（替代 Boot 默认的 InMemoryOAuth2AuthorizedClientService），
+		 * 否则用户在 A 副本登录、请求落到 B 副本时 B 没有令牌，调用认证中心返回 401。
+		 */
+		@Bean
+		public OAuth2AuthorizedClientService authorizedClientService(@SpringSessionDataSource DataSource sessionDataSource,
+				ClientRegistrationRepository clientRegistrationRepository) {
+			return new JdbcOAuth2AuthorizedClientService(new JdbcTemplate(sessionDataSource), clientRegistrationRepository);
+		}
+
+		@Bean
+		public JdbcSessionExpirer sessionExpirer(@SpringSessionDataSource DataSource sessionDataSource,
+				@Value("${app.session.jdbc.expire-batch-size:500}") int batchSize) {
+			return new JdbcSessionExpirer(new JdbcTemplate(sessionDataSource),
+					JdbcIndexedSessionRepository.DEFAULT_TABLE_NAME, batchSize);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package cn.civer.client.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 虚拟线程模式（spring.threads.virtual.enabled=true）下的钉住诊断：通过进程内 JFR 流订阅 jdk.VirtualThreadPinned 事件，
+ * 虚拟线程在 synchronized 块或本地方法中阻塞超过 threshold 时计数（jvm.threads.virtual.pinned），
+ * 每个不同的调用位置只打印一次带调用栈的 WARN，避免刷屏。平台线程模式下不启动。
+ */
+@Component
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+	private static final int LOGGED_FRAMES = 12;
+
+	private final boolean enabled;
+	private final Duration threshold;
+	private final Counter pinned;
+	private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+	private volatile RecordingStream stream;
+
+	public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+			@Value("${app.virtual-threads.pinning-monitor.enabled:true}") boolean monitorEnabled,
+			@Value("${app.virtual-threads.pinning-monitor.threshold:20ms}") Duration threshold) {
+		this.enabled = virtualThreads && monitorEnabled;
+		this.threshold = threshold;
+		this.pinned = Counter.builder("jvm.threads.virtual.pinned")
+				.description("Virtual threads blocked while pinned to their carrier longer than the threshold")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+		RecordingStream recording = new RecordingStream();
+		recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+		recording.onEvent(PINNED_EVENT, this::onPinned);
+		recording.startAsync();
+		stream = recording;
+		log.info("[virtual-threads] pinning monitor started, threshold={}", threshold);
+	}
+
+	@Override
+	public void stop() {
+		RecordingStream recording = stream;
+		stream = null;
+		if (recording != null) {
+			recording.close();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return stream != null;
+	}
+
+	private void onPinned(RecordedEvent event) {
+		pinned.increment();
+		if (event.getStackTrace() == null) {
+			return;
+		}
+		String stack = event.getStackTrace().getFrames().stream()
+				.limit(LOGGED_FRAMES)
+				.map(VirtualThreadPinningMonitor::format)
+				.collect(Collectors.joining("\n\tat "));
+		if (reportedSites.add(stack)) {
+			log.warn("[virtual-threads] thread pinned for {} ms (reported once per call site):\n\tat {}",
+					event.getDuration().toMillis(), stack);
+		}
+	}
+
+	private static String format(RecordedFrame frame) {
+		return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+	}
+}
@@ -1,6 +1,7 @@
 package cn.civer.client.controller;
 
 import cn.civer.client.client.ClientServiceClient;
+import cn.civer.client.client.EtagCache;
 import org.springframework.web.client.RestClientResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +23,8 @@ public class ClientManagementController {
 
 	private static final Logger log = LoggerFactory.getLogger(ClientManagementController.class);
 	private final ClientServiceClient clientServiceClient;
+	/** 客户端列表不分页，只有一个条目 */
+	private final EtagCache<String, List<ClientServiceClient.ClientSummaryDto>> listCache = new EtagCache<>(1);
 
 	public ClientManagementController(ClientServiceClient clientServiceClient) {
 		this.clientServiceClient = clientServiceClient;
@@ -30,7 +33,7 @@ public class ClientManagementController {
 	@GetMapping
 	public String listClients(Model model) {
 		try {
-			List<ClientServiceClient.ClientSummaryDto> clients = clientServiceClient.listClients();
+			List<ClientServiceClient.ClientSummaryDto> clients = listCache.get("all", clientServiceClient::listClients);
 			model.addAttribute("clients", clients);
 			log.debug("[admin/clients] list size={}", clients != null ? clients.size() : 0);
 		} catch (Exception e) {
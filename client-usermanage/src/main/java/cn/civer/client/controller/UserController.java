@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Controller
 @RequestMapping("/admin/users")
@@ -20,9 +21,21 @@ public class UserController {
 		this.userService = userService;
 	}
 
+	private static final int PAGE_SIZE = 50;
+
 	@GetMapping
-	public String listUsers(Model model) {
-		model.addAttribute("users", userService.getUsers());
+	public String listUsers(@RequestParam(required = false) Long after,
+			@RequestParam(required = false) String username,
+			@RequestParam(required = false) String role,
+			@RequestParam(required = false) Boolean enabled,
+			Model model) {
+		UserService.UserPage page = userService.getUserPage(after, PAGE_SIZE, username, role, enabled);
+		model.addAttribute("users", page.items());
+		model.addAttribute("nextCursor", page.nextCursor());
+		model.addAttribute("paged", after != null);
+		model.addAttribute("filterUsername", username);
+		model.addAttribute("filterRole", role);
+		model.addAttribute("filterEnabled", enabled);
 		model.addAttribute("newUser", new UserService.UserDto());
 		return "users";
 	}
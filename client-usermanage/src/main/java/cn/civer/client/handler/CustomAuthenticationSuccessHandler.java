@@ -1,9 +1,11 @@
 package cn.civer.client.handler;
 
+import cn.civer.client.session.JdbcSessionExpirer;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
 
@@ -16,6 +18,12 @@ public class CustomAuthenticationSuccessHandler extends SavedRequestAwareAuthent
 	public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
 			Authentication authentication) throws ServletException, IOException {
 
+		// jdbc 会话存储按此属性处理带 sid 的 Back-Channel Logout（见 JdbcSessionExpirer）
+		if (authentication.getPrincipal() instanceof OidcUser oidcUser && oidcUser.getIdToken() != null
+				&& oidcUser.getIdToken().getClaimAsString("sid") != null) {
+			request.getSession().setAttribute(JdbcSessionExpirer.SID_ATTRIBUTE, oidcUser.getIdToken().getClaimAsString("sid"));
+		}
+
 		var savedRequest = new org.springframework.security.web.savedrequest.HttpSessionRequestCache()
 				.getRequest(request, response);
 
@@ -1,8 +1,11 @@
 package cn.civer.client.service;
 
+import cn.civer.client.client.EtagCache;
 import cn.civer.client.client.UserServiceClient;
 import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.List;
 
@@ -10,20 +13,41 @@ import java.util.List;
 public class UserService {
 
 	private final UserServiceClient userServiceClient;
+	private final EtagCache<Long, UserDto> userCache;
+	private final EtagCache<PageQuery, UserPage> pageCache;
 
-	public UserService(UserServiceClient userServiceClient) {
+	public UserService(UserServiceClient userServiceClient,
+			@Value("${app.user-cache.maximum-size:1000}") int maximumSize,
+			@Value("${app.user-cache.maximum-pages:100}") int maximumPages) {
 		this.userServiceClient = userServiceClient;
+		this.userCache = new EtagCache<>(maximumSize);
+		this.pageCache = new EtagCache<>(maximumPages);
 	}
 
 	public List<UserDto> getUsers() {
 		return userServiceClient.getUsers();
 	}
 
+	/** 用户列表的一页：用户表未变化时认证中心返回 304，使用本地缓存（见 {@link EtagCache}），返回的列表只读。 */
+	public UserPage getUserPage(Long after, int size, String username, String role, Boolean enabled) {
+		PageQuery query = new PageQuery(after, size, emptyToNull(username), emptyToNull(role), enabled);
+		return pageCache.get(query, etag -> userServiceClient.getUserPage(query.after(), query.size(),
+				query.username(), query.role(), query.enabled(), etag));
+	}
+
+	/**
+	 * 单个用户：带上次的 ETag 发条件请求，未修改时认证中心返回 304，直接使用本地缓存的副本。
+	 */
 	public UserDto getUser(Long id) {
-		return getUsers().stream()
-				.filter(u -> u.getId().equals(id))
-				.findFirst()
-				.orElseThrow(() -> new RuntimeException("User not found"));
+		UserDto user;
+		try {
+			user = userCache.get(id, etag -> userServiceClient.getUser(id, etag));
+		} catch (HttpClientErrorException.NotFound e) {
+			userCache.evict(id);
+			throw new RuntimeException("User not found");
+		}
+		// 页面表单会修改返回的对象，不能直接交出缓存中的实例
+		return user != null ? user.copy() : null;
 	}
 
 	public UserDto createUser(UserDto user) {
@@ -31,10 +55,12 @@ public class UserService {
 	}
 
 	public void updateUser(Long id, UserDto user) {
+		userCache.evict(id);
 		userServiceClient.updateUser(id, user);
 	}
 
 	public void deleteUser(Long id) {
+		userCache.evict(id);
 		userServiceClient.deleteUser(id);
 	}
 
@@ -42,6 +68,19 @@ public class UserService {
 		userServiceClient.updateCurrentUser(user);
 	}
 
+	private static String emptyToNull(String value) {
+		return value == null || value.isBlank() ? null : value.trim();
+	}
+
+	private record PageQuery(Long after, int size, String username, String role, Boolean enabled) {
+	}
+
+	/**
+	 * @param nextCursor 下一页的 after 参数；为 null 表示没有下一页
+	 */
+	public record UserPage(List<UserDto> items, Long nextCursor) {
+	}
+
 	@Data
 	public static class UserDto {
 		private Long id;
@@ -58,5 +97,12 @@ public class UserService {
 			this.password = password;
 			this.role = role;
 		}
+
+		UserDto copy() {
+			UserDto copy = new UserDto(username, password, role);
+			copy.setId(id);
+			copy.setEnabled(enabled);
+			return copy;
+		}
 	}
 }
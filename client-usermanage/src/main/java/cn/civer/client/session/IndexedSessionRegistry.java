@@ -0,0 +1,187 @@
+package cn.civer.client.session;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.core.session.AbstractSessionEvent;
+import org.springframework.security.core.session.SessionDestroyedEvent;
+import org.springframework.security.core.session.SessionIdChangedEvent;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按用户标识（OIDC sub / 用户名）与 OIDC sid 建立索引的 {@link SessionRegistry}，
+ * Back-Channel Logout 时直接按 sub 或 sid 取出会话，不再遍历全部在线用户（SessionRegistryImpl 的做法）。
+ * <p>
+ * 会话在 {@link SessionDestroyedEvent}（超时、invalidate）时从全部索引中移除，
+ * 依赖 {@link org.springframework.security.web.session.HttpSessionEventPublisher} 把容器的会话事件转发出来，
+ * 否则已销毁的会话会一直留在内存中。
+ */
+public class IndexedSessionRegistry implements SessionRegistry, SessionExpirer, ApplicationListener<AbstractSessionEvent> {
+
+	/** sessionId -> 会话 */
+	private final ConcurrentMap<String, Entry> sessions = new ConcurrentHashMap<>();
+	/** subject -> sessionId 集合 */
+	private final ConcurrentMap<String, Set<String>> bySubject = new ConcurrentHashMap<>();
+	/** OIDC sid -> sessionId 集合 */
+	private final ConcurrentMap<String, Set<String>> bySid = new ConcurrentHashMap<>();
+	/** subject -> 最近一次登录的 principal，供 getAllPrincipals 使用 */
+	private final ConcurrentMap<String, Object> principals = new ConcurrentHashMap<>();
+
+	@Override
+	public void onApplicationEvent(AbstractSessionEvent event) {
+		if (event instanceof SessionDestroyedEvent destroyed) {
+			removeSessionInformation(destroyed.getId());
+		} else if (event instanceof SessionIdChangedEvent changed) {
+			Entry entry = sessions.get(changed.getOldSessionId());
+			if (entry != null) {
+				Object principal = entry.info().getPrincipal();
+				removeSessionInformation(changed.getOldSessionId());
+				registerNewSession(changed.getNewSessionId(), principal);
+			}
+		}
+	}
+
+	@Override
+	public List<Object> getAllPrincipals() {
+		return new ArrayList<>(principals.values());
+	}
+
+	@Override
+	public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+		return collect(bySubject.get(subjectOf(principal)), includeExpiredSessions);
+	}
+
+	@Override
+	public SessionInformation getSessionInformation(String sessionId) {
+		Entry entry = sessions.get(sessionId);
+		return entry != null ? entry.info() : null;
+	}
+
+	@Override
+	public void refreshLastRequest(String sessionId) {
+		SessionInformation info = getSessionInformation(sessionId);
+		if (info != null) {
+			info.refreshLastRequest();
+		}
+	}
+
+	@Override
+	public void registerNewSession(String sessionId, Object principal) {
+		if (getSessionInformation(sessionId) != null) {
+			removeSessionInformation(sessionId);
+		}
+		String subject = subjectOf(principal);
+		String sid = sidOf(principal);
+		sessions.put(sessionId, new Entry(new SessionInformation(principal, sessionId, new Date()), subject, sid));
+		bySubject.compute(subject, (k, ids) -> {
+			principals.put(k, principal);
+			return add(ids, sessionId);
+		});
+		if (sid != null) {
+			bySid.compute(sid, (k, ids) -> add(ids, sessionId));
+		}
+	}
+
+	@Override
+	public void removeSessionInformation(String sessionId) {
+		Entry entry = sessions.remove(sessionId);
+		if (entry == null) {
+			return;
+		}
+		// 增删都在 compute 内完成，保证「移除最后一个会话」与「并发登录新会话」互斥，不会误删刚加入的索引
+		bySubject.computeIfPresent(entry.subject(), (k, ids) -> {
+			ids.remove(sessionId);
+			if (ids.isEmpty()) {
+				principals.remove(k);
+				return null;
+			}
+			return ids;
+		});
+		if (entry.sid() != null) {
+			bySid.computeIfPresent(entry.sid(), (k, ids) -> {
+				ids.remove(sessionId);
+				return ids.isEmpty() ? null : ids;
+			});
+		}
+	}
+
+	/** 使该用户的全部会话过期，返回本次标记的会话数。 */
+	@Override
+	public int expireBySubject(String subject) {
+		return subject != null ? expireAll(bySubject.get(subject)) : 0;
+	}
+
+	/** 使 ID Token 中 sid 为该值的会话过期，返回本次标记的会话数。 */
+	@Override
+	public int expireBySid(String sid) {
+		return sid != null ? expireAll(bySid.get(sid)) : 0;
+	}
+
+	/** 当前登记的会话数（含已过期、尚未销毁的会话）。 */
+	public int size() {
+		return sessions.size();
+	}
+
+	private int expireAll(Set<String> sessionIds) {
+		int count = 0;
+		for (SessionInformation info : collect(sessionIds, false)) {
+			info.expireNow();
+			count++;
+		}
+		return count;
+	}
+
+	private static Set<String> add(Set<String> ids, String sessionId) {
+		Set<String> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+		result.add(sessionId);
+		return result;
+	}
+
+	private List<SessionInformation> collect(Set<String> sessionIds, boolean includeExpiredSessions) {
+		if (sessionIds == null) {
+			return Collections.emptyList();
+		}
+		List<SessionInformation> list = new ArrayList<>(sessionIds.size());
+		for (String sessionId : sessionIds) {
+			SessionInformation info = getSessionInformation(sessionId);
+			if (info != null && (includeExpiredSessions || !info.isExpired())) {
+				list.add(info);
+			}
+		}
+		return list;
+	}
+
+	/** 与 logout_token 的 sub 对应：OIDC 用户取 sub（getName），其余取用户名。 */
+	static String subjectOf(Object principal) {
+		if (principal instanceof OidcUser oidcUser) {
+			return oidcUser.getName();
+		}
+		if (principal instanceof UserDetails userDetails) {
+			return userDetails.getUsername();
+		}
+		if (principal instanceof Principal p) {
+			return p.getName();
+		}
+		return String.valueOf(principal);
+	}
+
+	private static String sidOf(Object principal) {
+		if (principal instanceof OidcUser oidcUser && oidcUser.getIdToken() != null) {
+			return oidcUser.getIdToken().getClaimAsString("sid");
+		}
+		return null;
+	}
+
+	private record Entry(SessionInformation info, String subject, String sid) {
+	}
+}
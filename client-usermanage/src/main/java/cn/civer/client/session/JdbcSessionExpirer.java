@@ -0,0 +1,61 @@
+package cn.civer.client.session;
+
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Spring Session JDBC 下的会话失效：会话行在所有副本间共享，直接按 PRINCIPAL_NAME 索引（SPRING_SESSION_IX3）删除，
+ * 属性行随外键 ON DELETE CASCADE 一并删除。一次退出只需一条（会话极多时分批的几条）SQL，
+ * 任何副本收到 logout_token 都能让其余副本上的会话同时失效，无需逐节点广播。
+ * <p>
+ * 按 sid 删除依赖登录成功时写入的会话属性 {@link #SID_ATTRIBUTE}（见 CustomAuthenticationSuccessHandler）：
+ * 属性值按 Spring Session 默认的 Java 序列化保存，这里用同样的序列化得到字节后按部分索引 SPRING_SESSION_ATTRIBUTES_IX_SID 匹配。
+ * 若自定义了 springSessionConversionService，按 sid 删除将匹配不到任何会话（按用户删除不受影响）。
+ */
+public class JdbcSessionExpirer implements SessionExpirer {
+
+	/** 保存 ID Token 中 sid 的会话属性名，与 session-schema.sql 中的部分索引条件一致。 */
+	public static final String SID_ATTRIBUTE = "cn.civer.client.OIDC_SID";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final String deleteByPrincipalSql;
+	private final String deleteBySidSql;
+	private final int batchSize;
+	private final SerializingConverter serializer = new SerializingConverter();
+
+	/**
+	 * @param tableName Spring Session 主表名
+	 * @param batchSize 每条 DELETE 最多删除的会话数，避免单个事务长时间持锁
+	 */
+	public JdbcSessionExpirer(JdbcTemplate jdbcTemplate, String tableName, int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.deleteByPrincipalSql = "DELETE FROM " + tableName + " WHERE PRIMARY_ID IN (SELECT PRIMARY_ID FROM "
+				+ tableName + " WHERE PRINCIPAL_NAME = ? LIMIT ?)";
+		this.deleteBySidSql = "DELETE FROM " + tableName + " WHERE PRIMARY_ID IN (SELECT SESSION_PRIMARY_ID FROM "
+				+ tableName + "_ATTRIBUTES WHERE ATTRIBUTE_NAME = '" + SID_ATTRIBUTE + "' AND ATTRIBUTE_BYTES = ?)";
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public int expireBySubject(String subject) {
+		if (subject == null) {
+			return 0;
+		}
+		int total = 0;
+		int deleted;
+		do {
+			deleted = jdbcTemplate.update(deleteByPrincipalSql, subject, batchSize);
+			total += deleted;
+		} while (deleted == batchSize);
+		return total;
+	}
+
+	/** 一个 sid 对应一次认证中心登录，会话数很少，不分批。 */
+	@Override
+	public int expireBySid(String sid) {
+		if (sid == null) {
+			return 0;
+		}
+		return jdbcTemplate.update(deleteBySidSql, (Object) serializer.convert(sid));
+	}
+}
@@ -0,0 +1,14 @@
+package cn.civer.client.session;
+
+/**
+ * Back-Channel Logout 时使用户会话失效，按 app.session.store 选择实现（见 SessionStoreConfig）：
+ * memory 为进程内的 {@link IndexedSessionRegistry}，jdbc 为共享库中的 {@link JdbcSessionExpirer}。
+ */
+public interface SessionExpirer {
+
+	/** 使该用户（logout_token 的 sub）的全部会话失效，返回失效的会话数。 */
+	int expireBySubject(String subject);
+
+	/** 使 ID Token 中 sid 为该值的会话失效，返回失效的会话数；不支持按 sid 索引的实现返回 0。 */
+	int expireBySid(String sid);
+}
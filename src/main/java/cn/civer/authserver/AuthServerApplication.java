@@ -3,9 +3,11 @@ package cn.civer.authserver;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaRepositories(basePackages = "cn.civer.authserver.repository")
+@EnableScheduling
 public class AuthServerApplication {
 
     public static void main(String[] args) {
@@ -14,14 +14,19 @@ import org.springframework.jdbc.core.JdbcTemplate;
 @EnableWebSecurity
 public class AuthorizationServerConfig {
 
-	@org.springframework.beans.factory.annotation.Autowired
-	private cn.civer.authserver.handler.SsoLogoutSuccessHandler ssoLogoutSuccessHandler;
-
+	/**
+	 * ssoLogoutSuccessHandler 作为方法参数注入而不是字段：它经 SsoLogoutService 依赖本类定义的 consent 缓存，
+	 * 字段注入会在本类实例化时形成循环依赖。
+	 */
 	@Bean
-	public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+	public SecurityFilterChain securityFilterChain(HttpSecurity http,
+			cn.civer.authserver.handler.SsoLogoutSuccessHandler ssoLogoutSuccessHandler,
+			cn.civer.authserver.service.SigningKeys signingKeys) throws Exception {
 		http
 				.authorizeHttpRequests((authorize) -> authorize
 						.requestMatchers("/", "/login", "/error", "/favicon.ico", "/css/**", "/js/**", "/images/**").permitAll()
+						.requestMatchers("/actuator/health").permitAll()
+						.requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
 						.requestMatchers("/api/**").hasAuthority("SCOPE_openid")
 						.anyRequest().authenticated())
 				.formLogin((form) -> form
@@ -33,7 +38,12 @@ public class AuthorizationServerConfig {
 						.logoutSuccessHandler(ssoLogoutSuccessHandler)
 						.permitAll())
 				.oauth2AuthorizationServer(authorizationServer -> authorizationServer
-						.oidc(Customizer.withDefaults())
+						// 签名算法可配置且轮换期间新旧算法并存，Discovery 中声明当前发布的密钥实际使用的算法（每次请求时读取）
+						.oidc(oidc -> oidc.providerConfigurationEndpoint(endpoint -> endpoint
+								.providerConfigurationCustomizer(config -> config.idTokenSigningAlgorithms(algs -> {
+									algs.clear();
+									algs.addAll(signingKeys.publishedAlgorithms());
+								}))))
 						.authorizationEndpoint(authorizationEndpoint ->
 								authorizationEndpoint.consentPage("/oauth2/consent")))
 				.oauth2ResourceServer((resourceServer) -> resourceServer
@@ -42,23 +52,72 @@ public class AuthorizationServerConfig {
 		return http.build();
 	}
 
+	/**
+	 * 客户端元数据很少变化却在每次授权/换 token 时读取，因此在 JDBC 实现外包一层本地缓存；
+	 * 返回具体类型以便 RegisteredClientController 在修改、删除后调用 evict。
+	 */
 	@Bean
-	public RegisteredClientRepository registeredClientRepository(JdbcTemplate jdbcTemplate) {
-		return new JdbcRegisteredClientRepository(jdbcTemplate);
+	public cn.civer.authserver.repository.CachingRegisteredClientRepository registeredClientRepository(
+			JdbcTemplate jdbcTemplate,
+			io.micrometer.core.instrument.MeterRegistry meterRegistry,
+			@org.springframework.beans.factory.annotation.Value("${app.client-cache.maximum-size:1000}") long maximumSize,
+			@org.springframework.beans.factory.annotation.Value("${app.client-cache.ttl:5m}") java.time.Duration ttl,
+			@org.springframework.beans.factory.annotation.Value("${app.refresh-token.rotation:false}") boolean rotateRefreshTokens) {
+		JdbcRegisteredClientRepository jdbcRepository = new JdbcRegisteredClientRepository(jdbcTemplate);
+		if (rotateRefreshTokens) {
+			// 读取时统一关闭 refresh token 复用，库中已有的客户端无需逐个修改
+			JdbcRegisteredClientRepository.JsonMapperRegisteredClientRowMapper rowMapper =
+					new JdbcRegisteredClientRepository.JsonMapperRegisteredClientRowMapper();
+			jdbcRepository.setRegisteredClientRowMapper((rs, rowNum) -> {
+				org.springframework.security.oauth2.server.authorization.client.RegisteredClient client = rowMapper.mapRow(rs, rowNum);
+				return org.springframework.security.oauth2.server.authorization.client.RegisteredClient.from(client)
+						.tokenSettings(org.springframework.security.oauth2.server.authorization.settings.TokenSettings
+								.withSettings(client.getTokenSettings().getSettings()).reuseRefreshTokens(false).build())
+						.build();
+			});
+		}
+		return new cn.civer.authserver.repository.CachingRegisteredClientRepository(
+				jdbcRepository, maximumSize, ttl, meterRegistry);
 	}
 
+	/**
+	 * 需要用户同意的客户端每次授权都会查询 consent，同样包一层本地缓存；
+	 * 返回具体类型以便全局退出、删除客户端时按用户或客户端失效。
+	 */
 	@Bean
-	public org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService authorizationConsentService(
-			JdbcTemplate jdbcTemplate, RegisteredClientRepository registeredClientRepository) {
-		return new org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationConsentService(
-				jdbcTemplate, registeredClientRepository);
+	public cn.civer.authserver.repository.CachingAuthorizationConsentService authorizationConsentService(
+			JdbcTemplate jdbcTemplate, RegisteredClientRepository registeredClientRepository,
+			io.micrometer.core.instrument.MeterRegistry meterRegistry,
+			@org.springframework.beans.factory.annotation.Value("${app.consent-cache.maximum-size:10000}") long maximumSize,
+			@org.springframework.beans.factory.annotation.Value("${app.consent-cache.ttl:1m}") java.time.Duration ttl) {
+		return new cn.civer.authserver.repository.CachingAuthorizationConsentService(
+				new org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationConsentService(
+						jdbcTemplate, registeredClientRepository),
+				maximumSize, ttl, meterRegistry);
 	}
 
 	@Bean
 	public org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService authorizationService(
-			JdbcTemplate jdbcTemplate, RegisteredClientRepository registeredClientRepository) {
-		return new org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService(
-				jdbcTemplate, registeredClientRepository);
+			JdbcTemplate jdbcTemplate, RegisteredClientRepository registeredClientRepository,
+			org.springframework.transaction.PlatformTransactionManager transactionManager,
+			io.micrometer.core.instrument.MeterRegistry meterRegistry,
+			@org.springframework.beans.factory.annotation.Value("${app.authorization-hash.legacy-fallback:true}") boolean legacyFallback,
+			@org.springframework.beans.factory.annotation.Value("${app.authorization-hot-tier.enabled:false}") boolean hotTier,
+			@org.springframework.beans.factory.annotation.Value("${app.authorization-hot-tier.maximum-size:100000}") long hotTierSize,
+			@org.springframework.beans.factory.annotation.Value("${app.authorization-hot-tier.state-ttl:10m}") java.time.Duration stateTtl,
+			@org.springframework.beans.factory.annotation.Value("${app.refresh-token.rotation:false}") boolean rotateRefreshTokens,
+			@org.springframework.beans.factory.annotation.Value("${app.refresh-token.reuse-grace:10s}") java.time.Duration reuseGrace) {
+		org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService service =
+				new cn.civer.authserver.service.HashIndexedAuthorizationService(jdbcTemplate, registeredClientRepository,
+						meterRegistry, legacyFallback);
+		if (hotTier) {
+			service = new cn.civer.authserver.service.TieredAuthorizationService(service, hotTierSize, stateTtl, meterRegistry);
+		}
+		if (rotateRefreshTokens) {
+			service = new cn.civer.authserver.service.RefreshTokenFamilyService(service, jdbcTemplate, transactionManager,
+					reuseGrace, meterRegistry);
+		}
+		return service;
 	}
 
 }
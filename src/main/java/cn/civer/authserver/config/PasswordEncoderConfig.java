@@ -0,0 +1,68 @@
+package cn.civer.authserver.config;
+
+import cn.civer.authserver.service.BoundedPasswordEncoder;
+import cn.civer.authserver.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+
+@Configuration
+public class PasswordEncoderConfig {
+
+	/**
+	 * 密码哈希（app.password）：新密码按 algorithm（bcrypt / argon2 / pbkdf2）及其参数生成，存为 {id}hash；
+	 * 库中不带 {id} 前缀的旧哈希按 bcrypt 校验。用户登录成功时，若哈希的算法或参数与当前配置不一致，
+	 * 由 DaoAuthenticationProvider 通过 UserDetailsPasswordService 透明地重新哈希并写回。
+	 */
+	@Bean
+	public PasswordEncoder passwordEncoder(
+			@Value("${app.password.algorithm:bcrypt}") String algorithm,
+			@Value("${app.password.bcrypt.strength:10}") int bcryptStrength,
+			@Value("${app.password.argon2.memory-kib:16384}") int argon2Memory,
+			@Value("${app.password.argon2.iterations:2}") int argon2Iterations,
+			@Value("${app.password.argon2.parallelism:1}") int argon2Parallelism,
+			@Value("${app.password.pbkdf2.iterations:310000}") int pbkdf2Iterations) {
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+		Map<String, PasswordEncoder> encoders = Map.of(
+				"bcrypt", bcrypt,
+				"argon2", new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2Memory, argon2Iterations),
+				"pbkdf2", new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations,
+						Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+		String id = algorithm.trim().toLowerCase();
+		if (!encoders.containsKey(id)) {
+			throw new IllegalArgumentException("Unsupported app.password.algorithm '" + algorithm
+					+ "', expected one of " + encoders.keySet());
+		}
+		DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(id, encoders);
+		encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+		return encoder;
+	}
+
+	/**
+	 * 表单登录的认证：密码校验在 {@link BoundedPasswordEncoder} 的独立线程池上执行（app.password.verify），
+	 * 与 Tomcat 请求线程上的其它接口隔离；登录成功后按需升级哈希。
+	 */
+	@Bean
+	public DaoAuthenticationProvider daoAuthenticationProvider(CustomUserDetailsService userDetailsService,
+			PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+			@Value("${app.password.verify.threads:0}") int threads,
+			@Value("${app.password.verify.queue-capacity:64}") int queueCapacity,
+			@Value("${app.password.verify.timeout:5s}") Duration timeout) {
+		int verifyThreads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService);
+		provider.setPasswordEncoder(new BoundedPasswordEncoder(passwordEncoder, verifyThreads, queueCapacity, timeout,
+				meterRegistry));
+		provider.setUserDetailsPasswordService(userDetailsService);
+		return provider;
+	}
+}
@@ -1,53 +1,89 @@
 package cn.civer.authserver.config;
 
+import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import cn.civer.authserver.service.JdbcRotatingJwkSource;
+import cn.civer.authserver.service.SigningKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
 import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Configuration
 public class TokenConfig {
 
+	private static final Logger log = LoggerFactory.getLogger(TokenConfig.class);
+
+	/**
+	 * 签名密钥来源（app.jwk.store）：
+	 * jdbc（默认）为库中共享、定时轮换的密钥，见 {@link JdbcRotatingJwkSource}；
+	 * memory 为每次启动生成的临时密钥，仅用于本地开发（重启后已签发的 token 全部失效）。
+	 * 签名算法由 app.jwk.algorithm 指定（RS256 / ES256 / ES384）。
+	 * jdbc 模式下未配置 app.jwk.encryption.password 时拒绝启动，除非显式设置 app.jwk.encryption.allow-plaintext=true。
+	 */
 	@Bean
-	public JWKSource<SecurityContext> jwkSource() {
-		KeyPair keyPair = generateRsaKey();
-		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-		RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-		RSAKey rsaKey = new RSAKey.Builder(publicKey)
-				.privateKey(privateKey)
-				.keyID(UUID.randomUUID().toString())
-				.build();
-		JWKSet jwkSet = new JWKSet(rsaKey);
-		return new ImmutableJWKSet<>(jwkSet);
+	public JWKSource<SecurityContext> jwkSource(JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager,
+			@Value("${app.jwk.store:jdbc}") String store,
+			@Value("${app.jwk.algorithm:RS256}") String algorithmName,
+			@Value("${app.jwk.rotation-interval:30d}") Duration rotationInterval,
+			@Value("${app.jwk.activation-delay:1h}") Duration activationDelay,
+			@Value("${app.jwk.retention:2d}") Duration retention,
+			@Value("${app.jwk.encryption.password:}") String encryptionPassword,
+			@Value("${app.jwk.encryption.salt:}") String encryptionSalt,
+			@Value("${app.jwk.encryption.allow-plaintext:false}") boolean allowPlaintext) {
+		JWSAlgorithm algorithm = SigningKeys.parseAlgorithm(algorithmName);
+		if ("memory".equalsIgnoreCase(store)) {
+			return new ImmutableJWKSet<>(new JWKSet(SigningKeys.generate(algorithm)));
+		}
+		TextEncryptor encryptor = null;
+		if (!encryptionPassword.isBlank()) {
+			if (encryptionSalt.isBlank() || !encryptionSalt.matches("(?:[0-9a-fA-F]{2})+")) {
+				throw new IllegalArgumentException("app.jwk.encryption.salt must be a non-empty hex string "
+						+ "(e.g. the output of KeyGenerators.string().generateKey())");
+			}
+			encryptor = Encryptors.delux(encryptionPassword, encryptionSalt);
+		} else if (allowPlaintext) {
+			log.warn("[jwk] app.jwk.encryption.password not set, private keys are stored unencrypted in oauth2_jwk");
+		} else {
+			throw new IllegalStateException("app.jwk.encryption.password is not set: private signing keys would be stored "
+					+ "unencrypted in oauth2_jwk. Set JWK_ENCRYPTION_PASSWORD / JWK_ENCRYPTION_SALT, or set "
+					+ "app.jwk.encryption.allow-plaintext=true (JWK_ALLOW_PLAINTEXT) to accept this explicitly");
+		}
+		return new JdbcRotatingJwkSource(jdbcTemplate, new TransactionTemplate(transactionManager), encryptor,
+				algorithm, rotationInterval, activationDelay, retention);
 	}
 
-	private static KeyPair generateRsaKey() {
-		KeyPair keyPair;
-		try {
-			KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-			keyPairGenerator.initialize(2048);
-			keyPair = keyPairGenerator.generateKeyPair();
-		} catch (Exception ex) {
-			throw new IllegalStateException(ex);
-		}
-		return keyPair;
+	/**
+	 * SAS 与 logout_token 共用的编码器。发布中的密钥可能有多把（当前、待生效、保留期内的旧密钥），
+	 * 在与 JWS 头算法匹配的密钥中取第一把，即当前签名密钥。
+	 */
+	@Bean
+	public JwtEncoder jwtEncoder(JWKSource<SecurityContext> jwkSource) {
+		NimbusJwtEncoder jwtEncoder = new NimbusJwtEncoder(jwkSource);
+		jwtEncoder.setJwkSelector(List::getFirst);
+		return jwtEncoder;
 	}
 
 	@Value("${spring.security.oauth2.authorizationserver.issuer:${app.base-url:}}")
@@ -63,11 +99,12 @@ public class TokenConfig {
 	}
 
 	/**
-	 * Customize JWT to include roles
+	 * Customize JWT to include roles; JWS 头的算法取当前签名密钥的算法（app.jwk.algorithm，见 SigningKeys）
 	 */
 	@Bean
-	public OAuth2TokenCustomizer<JwtEncodingContext> jwtTokenCustomizer() {
+	public OAuth2TokenCustomizer<JwtEncodingContext> jwtTokenCustomizer(SigningKeys signingKeys) {
 		return (context) -> {
+			context.getJwsHeader().algorithm(signingKeys.currentAlgorithm());
 			if (context.getPrincipal().getPrincipal() instanceof UserDetails user) {
 				Set<String> authorities = user.getAuthorities().stream()
 						.map(GrantedAuthority::getAuthority)
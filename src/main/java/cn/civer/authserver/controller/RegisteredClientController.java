@@ -1,5 +1,9 @@
 package cn.civer.authserver.controller;
 
+import cn.civer.authserver.repository.CachingAuthorizationConsentService;
+import cn.civer.authserver.repository.CachingRegisteredClientRepository;
+import cn.civer.authserver.service.RegisteredClientEndpointIndex;
+import cn.civer.authserver.service.TableVersionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -10,10 +14,10 @@ import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.core.oidc.OidcScopes;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
-import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
 import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.Duration;
 import java.util.Arrays;
@@ -47,20 +51,34 @@ class ClientSummaryDto {
 public class RegisteredClientController {
 
 	private static final Logger log = LoggerFactory.getLogger(RegisteredClientController.class);
-	private final RegisteredClientRepository registeredClientRepository;
+	private final CachingRegisteredClientRepository registeredClientRepository;
 	private final PasswordEncoder passwordEncoder;
 	private final JdbcTemplate jdbcTemplate;
+	private final RegisteredClientEndpointIndex clientEndpointIndex;
+	private final CachingAuthorizationConsentService authorizationConsentService;
+	private final TableVersionService tableVersionService;
 
-	public RegisteredClientController(RegisteredClientRepository registeredClientRepository,
+	public RegisteredClientController(CachingRegisteredClientRepository registeredClientRepository,
 			PasswordEncoder passwordEncoder,
-			JdbcTemplate jdbcTemplate) {
+			JdbcTemplate jdbcTemplate,
+			RegisteredClientEndpointIndex clientEndpointIndex,
+			CachingAuthorizationConsentService authorizationConsentService,
+			TableVersionService tableVersionService) {
 		this.registeredClientRepository = registeredClientRepository;
 		this.passwordEncoder = passwordEncoder;
 		this.jdbcTemplate = jdbcTemplate;
+		this.clientEndpointIndex = clientEndpointIndex;
+		this.authorizationConsentService = authorizationConsentService;
+		this.tableVersionService = tableVersionService;
 	}
 
+	/** 带 ETag（客户端表版本），未变化时 If-None-Match 命中返回 304，不执行查询。 */
 	@GetMapping
-	public ResponseEntity<List<ClientSummaryDto>> listClients() {
+	public ResponseEntity<List<ClientSummaryDto>> listClients(WebRequest request) {
+		String etag = tableVersionService.etag("oauth2_registered_client");
+		if (request.checkNotModified(etag)) {
+			return null; // 已写入 304 与 ETag
+		}
 		log.debug("[clients] list");
 		String sql = "SELECT id, client_id, client_name, redirect_uris, post_logout_redirect_uris FROM oauth2_registered_client ORDER BY client_id";
 		List<ClientSummaryDto> list = jdbcTemplate.query(sql, (rs, rowNum) -> {
@@ -72,7 +90,7 @@ public class RegisteredClientController {
 			dto.postLogoutRedirectUri = rs.getString("post_logout_redirect_uris");
 			return dto;
 		});
-		return ResponseEntity.ok(list);
+		return ResponseEntity.ok().eTag(etag).body(list);
 	}
 
 	@GetMapping("/{clientId}")
@@ -132,6 +150,7 @@ public class RegisteredClientController {
 				.build();
 
 		registeredClientRepository.save(registeredClient);
+		clientEndpointIndex.upsert(registeredClient);
 		log.info("[clients] registered: clientId={}", dto.clientId);
 		return ResponseEntity.ok("Client registered successfully: " + dto.clientId);
 	}
@@ -180,6 +199,8 @@ public class RegisteredClientController {
 				.tokenSettings(TokenSettings.builder().accessTokenTimeToLive(Duration.ofMinutes(30)).build())
 				.build();
 		registeredClientRepository.save(updated);
+		registeredClientRepository.evict(existing);
+		clientEndpointIndex.upsert(updated);
 		log.info("[clients] updated: clientId={}", clientId);
 		return ResponseEntity.ok("Client updated successfully: " + clientId);
 	}
@@ -196,12 +217,15 @@ public class RegisteredClientController {
 		jdbcTemplate.update("DELETE FROM oauth2_authorization WHERE registered_client_id = ?", id);
 		jdbcTemplate.update("DELETE FROM oauth2_authorization_consent WHERE registered_client_id = ?", id);
 		jdbcTemplate.update("DELETE FROM oauth2_registered_client WHERE id = ?", id);
+		registeredClientRepository.evict(client);
+		authorizationConsentService.evictByRegisteredClient(id);
+		clientEndpointIndex.remove(clientId);
 		log.info("[clients] deleted: clientId={}", clientId);
 		return ResponseEntity.ok("Client deleted: " + clientId);
 	}
 
 	/** 解析 redirectUri 字符串为列表，支持多行或逗号分隔（与 OAuth2 请求中的 redirect_uri 必须完全一致，包括查询参数）。 */
-	private static List<String> parseRedirectUris(String value) {
+	static List<String> parseRedirectUris(String value) {
 		if (value == null || value.isBlank()) {
 			return List.of();
 		}
@@ -2,29 +2,137 @@ package cn.civer.authserver.controller;
 
 import cn.civer.authserver.entity.User;
 import cn.civer.authserver.repository.UserRepository;
+import cn.civer.authserver.service.CustomUserDetailsService;
+import cn.civer.authserver.service.TableVersionService;
+import cn.civer.authserver.service.UserImportService;
+import cn.civer.authserver.service.UserQueryService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserManagementController {
 
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
 	private final UserRepository userRepository;
 	private final PasswordEncoder passwordEncoder;
+	private final UserQueryService userQueryService;
+	private final UserImportService userImportService;
+	private final CustomUserDetailsService userDetailsService;
+	private final JsonMapper jsonMapper;
+	private final TableVersionService tableVersionService;
 
-	public UserManagementController(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+	public UserManagementController(UserRepository userRepository, PasswordEncoder passwordEncoder,
+			UserQueryService userQueryService, UserImportService userImportService,
+			CustomUserDetailsService userDetailsService, JsonMapper jsonMapper,
+			TableVersionService tableVersionService) {
 		this.userRepository = userRepository;
 		this.passwordEncoder = passwordEncoder;
+		this.userQueryService = userQueryService;
+		this.userImportService = userImportService;
+		this.userDetailsService = userDetailsService;
+		this.jsonMapper = jsonMapper;
+		this.tableVersionService = tableVersionService;
 	}
 
+	/**
+	 * 一次返回全部用户，用户量大时会占满内存；保留给旧客户端，新代码使用 /page 或 /export。
+	 */
+	@Deprecated
 	@GetMapping
 	@PreAuthorize("hasAuthority('ROLE_ADMIN')")
-	public List<User> getUsers() {
-		return userRepository.findAll(org.springframework.data.domain.Sort.by("id"));
+	public ResponseEntity<List<User>> getUsers(WebRequest request) {
+		String etag = tableVersionService.etag("users");
+		if (request.checkNotModified(etag)) {
+			return null; // 已写入 304 与 ETag
+		}
+		return ResponseEntity.ok().eTag(etag).body(userRepository.findAll(org.springframework.data.domain.Sort.by("id")));
+	}
+
+	/**
+	 * 键集分页：按 id 升序，after 传上一页返回的 nextCursor；可按用户名前缀、角色、启用状态过滤。
+	 * 带 ETag（users 表版本 + 查询参数），用户表未变化时 If-None-Match 命中返回 304，不执行查询。
+	 */
+	@GetMapping("/page")
+	@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+	public ResponseEntity<UserQueryService.UserPage> getUserPage(@RequestParam(required = false) Long after,
+			@RequestParam(defaultValue = "50") int size,
+			@RequestParam(required = false) String username,
+			@RequestParam(required = false) String role,
+			@RequestParam(required = false) Boolean enabled,
+			WebRequest request) {
+		String etag = tableVersionService.etag("users", after, size, username, role, enabled);
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
+		return ResponseEntity.ok().eTag(etag)
+				.body(userQueryService.page(new UserQueryService.UserFilter(username, role, enabled), after, size));
+	}
+
+	/**
+	 * 流式导出（NDJSON，每行一个用户），过滤参数同 /page；服务端分批读取并逐批写出，不在内存中聚合全部用户。
+	 */
+	@GetMapping("/export")
+	@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+	public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(required = false) String username,
+			@RequestParam(required = false) String role,
+			@RequestParam(required = false) Boolean enabled) {
+		UserQueryService.UserFilter filter = new UserQueryService.UserFilter(username, role, enabled);
+		StreamingResponseBody body = out -> userQueryService.forEach(filter, batch -> {
+			try {
+				for (User user : batch) {
+					out.write(jsonMapper.writeValueAsBytes(user));
+					out.write('\n');
+				}
+				out.flush();
+			} catch (java.io.IOException e) {
+				throw new java.io.UncheckedIOException(e);
+			}
+		});
+		return ResponseEntity.ok().contentType(NDJSON).body(body);
+	}
+
+	/**
+	 * 批量导入：请求体为 CSV（text/csv，首行表头）或 NDJSON（application/x-ndjson）流，逐批校验、并行哈希、批量写入，
+	 * 返回成功 / 失败行数及逐行错误。已存在的用户名不会被覆盖。
+	 */
+	@PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+	@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+	public UserImportService.ImportReport importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+			java.io.InputStream body) throws java.io.IOException {
+		UserImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(NDJSON)
+				? UserImportService.Format.NDJSON
+				: UserImportService.Format.CSV;
+		return userImportService.importUsers(body, format);
+	}
+
+	/**
+	 * 单个用户，带 ETag：请求头 If-None-Match 与当前 ETag 一致时返回 304、不带响应体，管理后台据此复用本地缓存。
+	 */
+	@GetMapping("/{id}")
+	@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+	public ResponseEntity<User> getUser(@PathVariable Long id, WebRequest request) {
+		User user = userRepository.findById(id).orElse(null);
+		if (user == null) {
+			return ResponseEntity.notFound().build();
+		}
+		String etag = etag(user);
+		if (request.checkNotModified(etag)) {
+			return null; // 已写入 304 与 ETag
+		}
+		return ResponseEntity.ok().eTag(etag).body(user);
 	}
 
 	@PostMapping
@@ -49,7 +157,9 @@ public class UserManagementController {
 			if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
 				user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
 			}
-			return ResponseEntity.ok(userRepository.save(user));
+			User saved = userRepository.save(user);
+			userDetailsService.evict(saved.getUsername());
+			return ResponseEntity.ok(saved);
 		}).orElse(ResponseEntity.notFound().build());
 	}
 
@@ -59,6 +169,7 @@ public class UserManagementController {
 		return userRepository.findById(id).map(user -> {
 			user.setEnabled(false); // Soft delete
 			userRepository.save(user);
+			userDetailsService.evict(user.getUsername());
 			return ResponseEntity.ok().<Void>build();
 		}).orElse(ResponseEntity.notFound().build());
 	}
@@ -83,8 +194,17 @@ public class UserManagementController {
 				user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
 			}
 			User saved = userRepository.save(user);
+			// 改名时旧用户名的缓存也要失效
+			userDetailsService.evict(username);
+			userDetailsService.evict(saved.getUsername());
 			// 不在此处广播：由客户端重定向到 /logout 后，由 SsoLogoutSuccessHandler 统一做一次全局退出（清 consent + 广播），避免重复
 			return ResponseEntity.ok(saved);
 		}).orElse(ResponseEntity.notFound().build());
 	}
+
+	/** 由响应中可见的字段计算（不含密码哈希，修改密码不会使管理后台的缓存失效）。 */
+	private static String etag(User user) {
+		String fields = user.getId() + "\n" + user.getUsername() + "\n" + user.getRole() + "\n" + user.isEnabled();
+		return "\"" + DigestUtils.md5DigestAsHex(fields.getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
 }
@@ -0,0 +1,78 @@
+package cn.civer.authserver.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsent;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 带本地缓存的 {@link OAuth2AuthorizationConsentService} 装饰器，按 (registered_client_id, principal_name) 缓存，
+ * 未同意过的组合也缓存（空值），每次 /oauth2/authorize 不再查库。保存（用户在同意页明确批准）总是写库：
+ * 其他节点可能已删除了该行（全局退出、吊销），缓存内容相同并不代表库中仍存在。
+ * <p>
+ * 本节点的修改立即生效；绕过本类直接改表的地方（全局退出、删除客户端）须调用 {@link #evictByPrincipal} / {@link #evictByRegisteredClient}。
+ * 多节点部署下其他节点依赖 TTL 过期，因此 TTL 默认较短（1 分钟）。
+ */
+public class CachingAuthorizationConsentService implements OAuth2AuthorizationConsentService {
+
+	private final OAuth2AuthorizationConsentService delegate;
+	private final GenerationGuardedCache<Key, Optional<OAuth2AuthorizationConsent>> cache;
+
+	public CachingAuthorizationConsentService(OAuth2AuthorizationConsentService delegate, long maximumSize,
+			Duration timeToLive, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		Cache<Key, Optional<OAuth2AuthorizationConsent>> cache =
+				Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).recordStats().build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "authorizationConsents");
+		this.cache = new GenerationGuardedCache<>(cache);
+	}
+
+	@Override
+	public void save(OAuth2AuthorizationConsent authorizationConsent) {
+		Key key = Key.of(authorizationConsent);
+		try {
+			delegate.save(authorizationConsent);
+		} finally {
+			cache.invalidate(key); // 写库失败时也不保留可能过时的缓存
+		}
+		cache.put(key, Optional.of(authorizationConsent));
+	}
+
+	@Override
+	public void remove(OAuth2AuthorizationConsent authorizationConsent) {
+		try {
+			delegate.remove(authorizationConsent);
+		} finally {
+			cache.invalidate(Key.of(authorizationConsent));
+		}
+	}
+
+	@Override
+	public OAuth2AuthorizationConsent findById(String registeredClientId, String principalName) {
+		return cache.getOrLoad(new Key(registeredClientId, principalName),
+				key -> Optional.ofNullable(delegate.findById(key.registeredClientId(), key.principalName())))
+				.orElse(null);
+	}
+
+	/** 全局退出删除某用户的全部 consent 后调用。 */
+	public void evictByPrincipal(String principalName) {
+		cache.invalidateIf(key -> key.principalName().equals(principalName));
+	}
+
+	/** 删除客户端（连同其 consent）后调用；参数为 RegisteredClient.getId()。 */
+	public void evictByRegisteredClient(String registeredClientId) {
+		cache.invalidateIf(key -> key.registeredClientId().equals(registeredClientId));
+	}
+
+	private record Key(String registeredClientId, String principalName) {
+
+		static Key of(OAuth2AuthorizationConsent consent) {
+			return new Key(consent.getRegisteredClientId(), consent.getPrincipalName());
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package cn.civer.authserver.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+
+import java.time.Duration;
+
+/**
+ * 带本地缓存的 {@link RegisteredClientRepository} 装饰器：按 id 与 client_id 各缓存一份（RegisteredClient 不可变，可直接共享），
+ * 避免 /oauth2/authorize、/oauth2/token、授权同意页等每次请求都查库并反序列化 client_settings / token_settings。
+ * 管理端修改或删除客户端时须调用 {@link #evict}；多节点部署下其他节点依赖 TTL 过期（默认 5 分钟）。
+ * 查不到的 client 不缓存，新注册的客户端立即可见。
+ */
+public class CachingRegisteredClientRepository implements RegisteredClientRepository {
+
+	private final RegisteredClientRepository delegate;
+	private final GenerationGuardedCache<String, RegisteredClient> byId;
+	private final GenerationGuardedCache<String, RegisteredClient> byClientId;
+
+	public CachingRegisteredClientRepository(RegisteredClientRepository delegate, long maximumSize,
+			Duration timeToLive, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		Cache<String, RegisteredClient> byId =
+				Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).recordStats().build();
+		Cache<String, RegisteredClient> byClientId =
+				Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).recordStats().build();
+		CaffeineCacheMetrics.monitor(meterRegistry, byId, "registeredClientsById");
+		CaffeineCacheMetrics.monitor(meterRegistry, byClientId, "registeredClientsByClientId");
+		this.byId = new GenerationGuardedCache<>(byId);
+		this.byClientId = new GenerationGuardedCache<>(byClientId);
+	}
+
+	@Override
+	public void save(RegisteredClient registeredClient) {
+		delegate.save(registeredClient);
+		evict(registeredClient);
+	}
+
+	@Override
+	public RegisteredClient findById(String id) {
+		return byId.getOrLoad(id, delegate::findById);
+	}
+
+	@Override
+	public RegisteredClient findByClientId(String clientId) {
+		return byClientId.getOrLoad(clientId, delegate::findByClientId);
+	}
+
+	/** 使某个客户端的两份缓存失效（修改、删除后调用）。 */
+	public void evict(RegisteredClient registeredClient) {
+		byId.invalidate(registeredClient.getId());
+		byClientId.invalidate(registeredClient.getClientId());
+	}
+
+	/** 仅知道 client_id 时使用：同时清掉缓存中该客户端按 id 的条目。 */
+	public void evictByClientId(String clientId) {
+		RegisteredClient cached = byClientId.getIfPresent(clientId);
+		if (cached != null) {
+			byId.invalidate(cached.getId());
+		}
+		byClientId.invalidate(clientId);
+	}
+
+	public void evictAll() {
+		byId.invalidateAll();
+		byClientId.invalidateAll();
+	}
+}
@@ -0,0 +1,65 @@
+package cn.civer.authserver.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 在 Caffeine {@link Cache} 外加一个失效计数，未命中时在锁外查库，又不会把失效期间查到的旧值放回缓存。
+ * <p>
+ * 不用 Cache.get(key, loader)：loader 在 ConcurrentHashMap 的 synchronized 桶锁内执行，虚拟线程（spring.threads.virtual.enabled）
+ * 在 JDK 24 之前会在整个 JDBC 查询期间钉住载体线程。锁外查库的问题是：查询进行中发生的失效（禁用用户、删除客户端、吊销 consent）
+ * 会被随后的 put 覆盖，旧值一直留到 TTL 过期。因此每次失效先把计数加 1 再删除条目，查库结果只在计数未变时放入缓存；
+ * 放入在 asMap().compute 内完成，与失效互斥，桶锁内只比较计数、不做 I/O。
+ * 计数对整个缓存共用：任何失效都会让进行中的查询结果不入缓存（仍返回给调用方），修改很少，代价只是多查一次。
+ */
+public class GenerationGuardedCache<K, V> {
+
+	private final Cache<K, V> cache;
+	private final AtomicLong generation = new AtomicLong();
+
+	public GenerationGuardedCache(Cache<K, V> cache) {
+		this.cache = cache;
+	}
+
+	/** @param loader 返回 null 表示不存在，不缓存 */
+	public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+		V cached = cache.getIfPresent(key);
+		if (cached != null) {
+			return cached;
+		}
+		long seen = generation.get();
+		V loaded = loader.apply(key);
+		if (loaded != null) {
+			cache.asMap().compute(key, (k, existing) ->
+					existing != null ? existing : generation.get() == seen ? loaded : null);
+		}
+		return loaded;
+	}
+
+	public V getIfPresent(K key) {
+		return cache.getIfPresent(key);
+	}
+
+	/** 写库之后放入本节点刚写入的值；须在同一次修改的 {@link #invalidate} 之后调用。 */
+	public void put(K key, V value) {
+		cache.put(key, value);
+	}
+
+	public void invalidate(K key) {
+		generation.incrementAndGet();
+		cache.invalidate(key);
+	}
+
+	public void invalidateIf(Predicate<? super K> predicate) {
+		generation.incrementAndGet();
+		cache.asMap().keySet().removeIf(predicate);
+	}
+
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		cache.invalidateAll();
+	}
+}
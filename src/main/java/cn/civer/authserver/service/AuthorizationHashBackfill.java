@@ -0,0 +1,82 @@
+package cn.civer.authserver.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 为升级前写入的 oauth2_authorization 行（token_hash_version 为 NULL）分批补算 token 摘要，见 {@link HashIndexedAuthorizationService}。
+ * 单独作为组件而不放在授权服务里：授权服务 bean 可能被 TieredAuthorizationService / RefreshTokenFamilyService 包装，
+ * 包装后其上的 @Scheduled 方法不会被注册。
+ * <p>
+ * 每批一个事务，FOR UPDATE SKIP LOCKED 不与在线写入互相等待，pg_try_advisory_xact_lock 保证同一时刻只有一个节点在补算。
+ * 全部补算完成后每轮只剩一次部分索引（idx_oauth2_authorization_unhashed）上的空查询。
+ */
+@Component
+public class AuthorizationHashBackfill {
+
+	private static final Logger log = LoggerFactory.getLogger(AuthorizationHashBackfill.class);
+
+	/** pg_try_advisory_xact_lock 的锁编号，仅用于摘要补算 */
+	private static final long BACKFILL_LOCK_KEY = 0x6f61757468326862L;
+
+	private static final String BACKFILL_SQL = "UPDATE oauth2_authorization SET " + HashIndexedAuthorizationService.SET_HASHES
+			+ " WHERE id IN (SELECT id FROM oauth2_authorization WHERE token_hash_version IS NULL LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final Counter backfilled;
+
+	@Value("${app.authorization-hash.batch-size:1000}")
+	private int batchSize;
+
+	@Value("${app.authorization-hash.max-batches:100}")
+	private int maxBatches;
+
+	public AuthorizationHashBackfill(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.backfilled = Counter.builder("auth.authorization.hash.backfilled")
+				.description("Pre-existing oauth2_authorization rows whose token digests were backfilled")
+				.register(meterRegistry);
+	}
+
+	@Scheduled(fixedDelayString = "${app.authorization-hash.backfill-interval:1m}",
+			initialDelayString = "${app.authorization-hash.backfill-initial-delay:30s}")
+	public void backfill() {
+		try {
+			long total = 0;
+			for (int i = 0; i < maxBatches; i++) {
+				Integer updated = transactionTemplate.execute(status -> {
+					Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)",
+							Boolean.class, BACKFILL_LOCK_KEY);
+					if (!Boolean.TRUE.equals(locked)) {
+						return -1; // 其他节点正在补算
+					}
+					return jdbcTemplate.update(BACKFILL_SQL, batchSize);
+				});
+				if (updated == null || updated < 0) {
+					break;
+				}
+				total += updated;
+				backfilled.increment(updated);
+				if (updated < batchSize) {
+					break;
+				}
+			}
+			if (total > 0) {
+				log.info("[authorization-hash] backfilled token digests for {} authorizations", total);
+			}
+		} catch (Exception e) {
+			log.warn("[authorization-hash] backfill failed: {}", e.getMessage());
+		}
+	}
+}
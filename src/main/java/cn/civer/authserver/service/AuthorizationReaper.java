@@ -0,0 +1,110 @@
+package cn.civer.authserver.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 定期清理已过期的 oauth2_authorization 行（JdbcOAuth2AuthorizationService 自身从不删除）。
+ * 一行的过期时间取其各类 token（授权码、access、refresh、ID token、设备码）到期时间的最大值，
+ * 尚未签发任何 token 的行（授权同意进行中）取 created_at；过期超过 retention 后删除。
+ * 过期时间表达式上有同名表达式索引（idx_oauth2_authorization_expires，见 schema.sql），每批按索引取 batch-size 行删除并立即提交，
+ * 不会长时间持锁；批之间用 pg_try_advisory_xact_lock 保证同一时刻只有一个节点在清理。
+ */
+@Component
+public class AuthorizationReaper {
+
+	private static final Logger log = LoggerFactory.getLogger(AuthorizationReaper.class);
+
+	/** pg_try_advisory_xact_lock 的锁编号，仅用于授权清理 */
+	private static final long REAPER_LOCK_KEY = 0x6f61757468327270L;
+
+	/** 与 schema.sql 中 idx_oauth2_authorization_expires 的表达式保持一致，否则用不上索引 */
+	static final String EXPIRES_AT = "COALESCE(GREATEST(authorization_code_expires_at, access_token_expires_at, "
+			+ "refresh_token_expires_at, oidc_id_token_expires_at, device_code_expires_at, user_code_expires_at), created_at)";
+
+	private static final String DELETE_SQL = "DELETE FROM oauth2_authorization WHERE id IN ("
+			+ "SELECT id FROM oauth2_authorization WHERE " + EXPIRES_AT + " < ? LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final Counter purged;
+	private final Timer runTimer;
+
+	@Value("${app.authorization-reaper.enabled:true}")
+	private boolean enabled;
+
+	@Value("${app.authorization-reaper.retention:1d}")
+	private Duration retention;
+
+	@Value("${app.authorization-reaper.batch-size:1000}")
+	private int batchSize;
+
+	@Value("${app.authorization-reaper.max-batches:100}")
+	private int maxBatches;
+
+	public AuthorizationReaper(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.purged = Counter.builder("auth.authorization.reaper.purged")
+				.description("Expired oauth2_authorization rows deleted")
+				.register(meterRegistry);
+		this.runTimer = Timer.builder("auth.authorization.reaper.run")
+				.description("Time spent per reaper run")
+				.register(meterRegistry);
+	}
+
+	@Scheduled(fixedDelayString = "${app.authorization-reaper.interval:10m}",
+			initialDelayString = "${app.authorization-reaper.initial-delay:1m}")
+	public void reap() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			long deleted = runTimer.recordCallable(this::purgeExpired);
+			if (deleted > 0) {
+				log.info("[authorization-reaper] deleted {} expired authorizations", deleted);
+			}
+		} catch (Exception e) {
+			log.warn("[authorization-reaper] run failed: {}", e.getMessage());
+		}
+	}
+
+	/** 分批删除过期超过 retention 的授权，最多 max-batches 批，剩余的留到下一轮。返回删除的行数。 */
+	long purgeExpired() {
+		Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+		long total = 0;
+		for (int i = 0; i < maxBatches; i++) {
+			Integer deleted = transactionTemplate.execute(status -> {
+				Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class,
+						REAPER_LOCK_KEY);
+				if (!Boolean.TRUE.equals(locked)) {
+					return -1; // 其他节点正在清理
+				}
+				return jdbcTemplate.update(DELETE_SQL, cutoff, batchSize);
+			});
+			if (deleted == null || deleted < 0) {
+				break;
+			}
+			total += deleted;
+			purged.increment(deleted);
+			if (deleted < batchSize) {
+				break;
+			}
+		}
+		return total;
+	}
+}
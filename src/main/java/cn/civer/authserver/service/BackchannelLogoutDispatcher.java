@@ -0,0 +1,166 @@
+package cn.civer.authserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OIDC Back-Channel Logout 投递器：全进程共享一个支持 HTTP/2 的 {@link HttpClient}，
+ * 在虚拟线程上发送 logout_token，并通过全局 / 单 host 信号量限制并发，避免登出风暴时线程与连接暴涨。
+ * 先取 host 名额再取全局名额：等待某个慢 host 的任务不占用全局名额，不会拖住发往其他 host 的投递。
+ * 单 host 信号量按引用计数保留，没有任务持有或等待时即移除，host 变化不会让它无限增长。
+ */
+@Component
+public class BackchannelLogoutDispatcher implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(BackchannelLogoutDispatcher.class);
+
+	private final HttpClient httpClient;
+	private final ExecutorService executor;
+	private final Semaphore globalPermits;
+	private final ConcurrentHashMap<String, HostLimit> hostPermits = new ConcurrentHashMap<>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final int maxConcurrencyPerHost;
+	private final int maxPending;
+	private final Duration requestTimeout;
+
+	public BackchannelLogoutDispatcher(
+			@Value("${app.logout.backchannel.max-concurrency:64}") int maxConcurrency,
+			@Value("${app.logout.backchannel.max-concurrency-per-host:4}") int maxConcurrencyPerHost,
+			@Value("${app.logout.backchannel.max-pending:10000}") int maxPending,
+			@Value("${app.logout.backchannel.connect-timeout:3s}") Duration connectTimeout,
+			@Value("${app.logout.backchannel.request-timeout:5s}") Duration requestTimeout) {
+		this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("backchannel-logout-", 0).factory());
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(connectTimeout)
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.executor(executor)
+				.build();
+		this.globalPermits = new Semaphore(maxConcurrency);
+		this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+		this.maxPending = maxPending;
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * 异步发送一个 logout_token，结果为对端是否以 2xx 确认。发送失败（超时、连接错误、队列已满）时结果为 false。
+	 */
+	public CompletableFuture<Boolean> send(String endpoint, String logoutToken) {
+		if (pending.incrementAndGet() > maxPending) {
+			pending.decrementAndGet();
+			log.warn("[backchannel] queue full ({}), drop logout to {}", maxPending, endpoint);
+			return CompletableFuture.completedFuture(false);
+		}
+		try {
+			return CompletableFuture.supplyAsync(() -> deliver(endpoint, logoutToken), executor)
+					.whenComplete((ok, ex) -> pending.decrementAndGet());
+		} catch (RejectedExecutionException e) {
+			pending.decrementAndGet();
+			return CompletableFuture.completedFuture(false);
+		}
+	}
+
+	private boolean deliver(String endpoint, String logoutToken) {
+		URI uri;
+		try {
+			uri = URI.create(endpoint);
+		} catch (IllegalArgumentException e) {
+			log.warn("[backchannel] invalid endpoint {}: {}", endpoint, e.getMessage());
+			return false;
+		}
+		String hostKey = hostKey(uri);
+		HostLimit hostLimit = retainHost(hostKey);
+		try {
+			hostLimit.permits().acquire();
+			try {
+				globalPermits.acquire();
+				try {
+					HttpRequest req = HttpRequest.newBuilder(uri)
+							.timeout(requestTimeout)
+							.header("Content-Type", "application/x-www-form-urlencoded")
+							.POST(HttpRequest.BodyPublishers.ofString("logout_token=" + logoutToken))
+							.build();
+					int status = httpClient.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+					log.debug("[backchannel] logout token sent to {} code={}", endpoint, status);
+					return status >= 200 && status < 300;
+				} finally {
+					globalPermits.release();
+				}
+			} finally {
+				hostLimit.permits().release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (Exception e) {
+			log.warn("[backchannel] failed to send logout token to {}: {}", endpoint, e.toString());
+			return false;
+		} finally {
+			releaseHost(hostKey);
+		}
+	}
+
+	/** 取得 host 的信号量并增加引用计数（计数只在 compute 内修改）。 */
+	private HostLimit retainHost(String hostKey) {
+		return hostPermits.compute(hostKey, (k, limit) -> {
+			HostLimit l = limit != null ? limit : new HostLimit(new Semaphore(maxConcurrencyPerHost));
+			l.users++;
+			return l;
+		});
+	}
+
+	/** 引用计数归零（没有任务持有或等待名额）时移除。 */
+	private void releaseHost(String hostKey) {
+		hostPermits.computeIfPresent(hostKey, (k, limit) -> --limit.users == 0 ? null : limit);
+	}
+
+	private static String hostKey(URI uri) {
+		String host = uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+		return host + ":" + uri.getPort();
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		executor.shutdown();
+		if (!executor.awaitTermination(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+			executor.shutdownNow();
+		}
+		httpClient.shutdownNow();
+	}
+
+	private static final class HostLimit {
+
+		private final Semaphore permits;
+		private int users;
+
+		HostLimit(Semaphore permits) {
+			this.permits = permits;
+		}
+
+		Semaphore permits() {
+			return permits;
+		}
+	}
+
+	/** 一批投递的结果：总数与 2xx 确认数 */
+	public record DispatchSummary(int total, int acknowledged) {
+	}
+}
@@ -0,0 +1,117 @@
+package cn.civer.authserver.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Back-Channel Logout 发件箱（表 oauth2_logout_outbox）的 JDBC 访问。
+ * 全局退出时与删除 consent 同一事务写入，由 {@link BackchannelLogoutOutboxWorker} 投递、退避重试与死信。
+ * 认领使用 FOR UPDATE SKIP LOCKED + 租约时间，多节点同时消费不会重复投递同一行。
+ */
+@Component
+public class BackchannelLogoutOutbox {
+
+	private static final String INSERT_SQL = "INSERT INTO oauth2_logout_outbox "
+			+ "(event_id, principal_name, issuer, client_id, endpoint) VALUES (?, ?, ?, ?, ?)";
+
+	private static final String CLAIM_SQL = "UPDATE oauth2_logout_outbox "
+			+ "SET attempts = attempts + 1, next_attempt_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 millisecond') "
+			+ "WHERE id IN (SELECT id FROM oauth2_logout_outbox "
+			+ "WHERE status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP %s "
+			+ "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+			+ "RETURNING id, event_id, principal_name, issuer, client_id, endpoint, attempts";
+
+	private static final String DELETE_SQL = "DELETE FROM oauth2_logout_outbox WHERE id = ?";
+
+	private static final String RESCHEDULE_SQL = "UPDATE oauth2_logout_outbox "
+			+ "SET next_attempt_at = CURRENT_TIMESTAMP + (? * INTERVAL '1 millisecond'), last_error = ? WHERE id = ?";
+
+	private static final String DEAD_LETTER_SQL = "UPDATE oauth2_logout_outbox "
+			+ "SET status = 'DEAD', last_error = ? WHERE id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public BackchannelLogoutOutbox(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/** 写入一次退出事件的全部投递目标；须在调用方事务内执行。 */
+	public void enqueue(String eventId, String principalName, String issuer, List<Target> targets) {
+		if (targets.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(INSERT_SQL, targets, 500, (ps, t) -> {
+			ps.setString(1, eventId);
+			ps.setString(2, principalName);
+			ps.setString(3, issuer);
+			ps.setString(4, t.clientId());
+			ps.setString(5, t.endpoint());
+		});
+	}
+
+	/** 认领到期的待投递行，并把 next_attempt_at 推迟一个租约，投递方崩溃时租约到期后会被重新认领。 */
+	public List<Entry> claimDue(int limit, Duration lease) {
+		return jdbcTemplate.query(String.format(CLAIM_SQL, ""), this::mapEntry, lease.toMillis(), limit);
+	}
+
+	/** 仅认领某次退出事件的行（退出后立即投递用）。 */
+	public List<Entry> claimEvent(String eventId, int limit, Duration lease) {
+		return jdbcTemplate.query(String.format(CLAIM_SQL, "AND event_id = ?"), this::mapEntry,
+				lease.toMillis(), eventId, limit);
+	}
+
+	public void markDelivered(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(DELETE_SQL, ids, 500, (ps, id) -> ps.setLong(1, id));
+	}
+
+	public void reschedule(List<Entry> entries, ToLongFunction<Entry> delayMillis, String error) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		String lastError = truncate(error);
+		jdbcTemplate.batchUpdate(RESCHEDULE_SQL, entries, 500, (ps, e) -> {
+			ps.setLong(1, delayMillis.applyAsLong(e));
+			ps.setString(2, lastError);
+			ps.setLong(3, e.id());
+		});
+	}
+
+	public void deadLetter(List<Entry> entries, String error) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		String lastError = truncate(error);
+		jdbcTemplate.batchUpdate(DEAD_LETTER_SQL, entries, 500, (ps, e) -> {
+			ps.setString(1, lastError);
+			ps.setLong(2, e.id());
+		});
+	}
+
+	private Entry mapEntry(ResultSet rs, int rowNum) throws SQLException {
+		return new Entry(rs.getLong("id"), rs.getString("event_id"), rs.getString("principal_name"),
+				rs.getString("issuer"), rs.getString("client_id"), rs.getString("endpoint"), rs.getInt("attempts"));
+	}
+
+	private static String truncate(String error) {
+		if (error == null) return null;
+		return error.length() > 1000 ? error.substring(0, 1000) : error;
+	}
+
+	/** 待写入的投递目标：客户端与其 /api/sso-logout 地址 */
+	public record Target(String clientId, String endpoint) {
+	}
+
+	/** 已认领的一行；attempts 为包含本次在内的尝试次数 */
+	public record Entry(long id, String eventId, String principalName, String issuer, String clientId,
+			String endpoint, int attempts) {
+	}
+}
@@ -0,0 +1,182 @@
+package cn.civer.authserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 消费 Back-Channel Logout 发件箱：退出后立即投递本次事件，失败的行按指数退避重试，超过最大次数转为死信（status=DEAD）。
+ * 定时任务兜底处理重启遗留与到期重试的行，因此客户端短暂不可用也能在恢复后收到退出通知。
+ */
+@Component
+public class BackchannelLogoutOutboxWorker implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(BackchannelLogoutOutboxWorker.class);
+
+	private final BackchannelLogoutOutbox outbox;
+	private final BackchannelLogoutDispatcher dispatcher;
+	private final LogoutTokenMinter logoutTokenMinter;
+	private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+			Thread.ofVirtual().name("logout-outbox-", 0).factory());
+
+	@Value("${app.logout.outbox.batch-size:200}")
+	private int batchSize;
+
+	@Value("${app.logout.outbox.max-batches-per-run:50}")
+	private int maxBatchesPerRun;
+
+	@Value("${app.logout.outbox.max-attempts:12}")
+	private int maxAttempts;
+
+	@Value("${app.logout.outbox.initial-backoff:5s}")
+	private Duration initialBackoff;
+
+	@Value("${app.logout.outbox.max-backoff:1h}")
+	private Duration maxBackoff;
+
+	@Value("${app.logout.outbox.lease:2m}")
+	private Duration lease;
+
+	/** true：同一退出事件只签一个 aud 为全部 client_id 的 token；false：每个客户端单独签名（aud 仅含自身） */
+	@Value("${app.logout.token.multi-audience:false}")
+	private boolean multiAudience;
+
+	public BackchannelLogoutOutboxWorker(BackchannelLogoutOutbox outbox,
+			BackchannelLogoutDispatcher dispatcher,
+			LogoutTokenMinter logoutTokenMinter) {
+		this.outbox = outbox;
+		this.dispatcher = dispatcher;
+		this.logoutTokenMinter = logoutTokenMinter;
+	}
+
+	/**
+	 * 在后台立即投递某次退出事件（事务提交后调用），不占用 /logout 请求线程。
+	 */
+	public CompletableFuture<BackchannelLogoutDispatcher.DispatchSummary> deliverEvent(String eventId) {
+		return CompletableFuture.supplyAsync(() -> deliver(outbox.claimEvent(eventId, Integer.MAX_VALUE, lease)),
+				executor);
+	}
+
+	/** 定时处理到期的待投递行（重试与重启遗留）。 */
+	@Scheduled(fixedDelayString = "${app.logout.outbox.poll-interval:5s}",
+			initialDelayString = "${app.logout.outbox.poll-interval:5s}")
+	public void drainDue() {
+		try {
+			for (int i = 0; i < maxBatchesPerRun; i++) {
+				List<BackchannelLogoutOutbox.Entry> entries = outbox.claimDue(batchSize, lease);
+				if (entries.isEmpty()) {
+					return;
+				}
+				deliver(entries);
+				if (entries.size() < batchSize) {
+					return;
+				}
+			}
+		} catch (Exception e) {
+			log.warn("[logout-outbox] drain failed: {}", e.getMessage());
+		}
+	}
+
+	private BackchannelLogoutDispatcher.DispatchSummary deliver(List<BackchannelLogoutOutbox.Entry> entries) {
+		if (entries.isEmpty()) {
+			return new BackchannelLogoutDispatcher.DispatchSummary(0, 0);
+		}
+		String[] tokens = multiAudience ? mintPerEvent(entries) : mintPerClient(entries);
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>(entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			futures.add(tokens[i] != null
+					? dispatcher.send(entries.get(i).endpoint(), tokens[i])
+					: CompletableFuture.completedFuture(false));
+		}
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+		List<Long> delivered = new ArrayList<>();
+		List<BackchannelLogoutOutbox.Entry> retry = new ArrayList<>();
+		List<BackchannelLogoutOutbox.Entry> dead = new ArrayList<>();
+		for (int i = 0; i < entries.size(); i++) {
+			BackchannelLogoutOutbox.Entry e = entries.get(i);
+			if (futures.get(i).join()) {
+				delivered.add(e.id());
+			} else if (e.attempts() >= maxAttempts) {
+				dead.add(e);
+			} else {
+				retry.add(e);
+			}
+		}
+		outbox.markDelivered(delivered);
+		outbox.reschedule(retry, e -> backoffMillis(e.attempts()), "delivery failed (transport error or non-2xx)");
+		outbox.deadLetter(dead, "gave up after " + maxAttempts + " attempts");
+		for (BackchannelLogoutOutbox.Entry e : dead) {
+			log.warn("[logout-outbox] dead-lettered logout of '{}' to {} ({})", e.principalName(), e.endpoint(),
+					e.clientId());
+		}
+		return new BackchannelLogoutDispatcher.DispatchSummary(entries.size(), delivered.size());
+	}
+
+	/** 指数退避：initial * 2^(attempts-1)，上限 maxBackoff，并加 ±20% 抖动避免同一时刻集中重试。 */
+	private long backoffMillis(int attempts) {
+		long base = initialBackoff.toMillis() << Math.min(Math.max(attempts - 1, 0), 30);
+		long capped = Math.min(base <= 0 ? Long.MAX_VALUE : base, maxBackoff.toMillis());
+		double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+		return (long) (capped * jitter);
+	}
+
+	/** 每行单独签名；签名失败的位置为 null，按投递失败处理。 */
+	private String[] mintPerClient(List<BackchannelLogoutOutbox.Entry> entries) {
+		String[] tokens = new String[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			BackchannelLogoutOutbox.Entry e = entries.get(i);
+			try {
+				tokens[i] = logoutTokenMinter.mint(e.issuer(), e.principalName(), List.of(e.clientId()));
+			} catch (Exception ex) {
+				log.warn("[logout-outbox] failed to sign logout token for client {}: {}", e.clientId(), ex.getMessage());
+			}
+		}
+		return tokens;
+	}
+
+	/** 按 event_id 分组，每组签一个包含组内全部 client_id 的 token，签名次数与客户端数量无关。 */
+	private String[] mintPerEvent(List<BackchannelLogoutOutbox.Entry> entries) {
+		Map<String, List<Integer>> byEvent = new LinkedHashMap<>();
+		for (int i = 0; i < entries.size(); i++) {
+			byEvent.computeIfAbsent(entries.get(i).eventId(), k -> new ArrayList<>()).add(i);
+		}
+		String[] tokens = new String[entries.size()];
+		for (List<Integer> group : byEvent.values()) {
+			BackchannelLogoutOutbox.Entry first = entries.get(group.getFirst());
+			Set<String> audiences = new LinkedHashSet<>();
+			for (int i : group) {
+				audiences.add(entries.get(i).clientId());
+			}
+			try {
+				String token = logoutTokenMinter.mint(first.issuer(), first.principalName(), audiences);
+				for (int i : group) {
+					tokens[i] = token;
+				}
+			} catch (Exception ex) {
+				log.warn("[logout-outbox] failed to sign logout token for event {}: {}", first.eventId(), ex.getMessage());
+			}
+		}
+		return tokens;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
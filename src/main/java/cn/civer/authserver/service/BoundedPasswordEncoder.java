@@ -0,0 +1,99 @@
+package cn.civer.authserver.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 登录专用的 {@link PasswordEncoder} 包装：密码校验与升级时的重新哈希在固定大小的线程池上执行，
+ * 等待队列满时立即拒绝（抛出 {@link AuthenticationServiceException}，表单登录按登录失败处理），
+ * 撞库等登录洪峰最多占用 threads 个核心，不会拖慢 /oauth2/token、/oauth2/jwks 等接口。
+ * 只用于 DaoAuthenticationProvider；管理端、批量导入等直接使用被包装的编码器。
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+	private final PasswordEncoder delegate;
+	private final ThreadPoolExecutor executor;
+	private final Duration timeout;
+	private final Counter rejected;
+
+	/**
+	 * @param threads       并行校验的线程数
+	 * @param queueCapacity 排队等待校验的最大请求数，超出后立即拒绝
+	 * @param timeout       请求线程等待校验结果的最长时间
+	 */
+	public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration timeout,
+			MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.timeout = timeout;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("password-verify-", 0).daemon(true)
+						.factory(), new ThreadPoolExecutor.AbortPolicy());
+		Gauge.builder("auth.password.verify.queue", executor, e -> e.getQueue().size())
+				.description("Password verifications waiting for a hashing thread")
+				.register(meterRegistry);
+		Gauge.builder("auth.password.verify.active", executor, ThreadPoolExecutor::getActiveCount)
+				.register(meterRegistry);
+		this.rejected = Counter.builder("auth.password.verify.rejected")
+				.description("Logins rejected because the password verification queue was full")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return run(() -> delegate.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return run(() -> delegate.matches(rawPassword, encodedPassword));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private <T> T run(Callable<T> task) {
+		Future<T> future;
+		try {
+			future = executor.submit(task);
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new AuthenticationServiceException("Too many concurrent logins, please try again later");
+		}
+		try {
+			return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			rejected.increment();
+			throw new AuthenticationServiceException("Password verification timed out, please try again later");
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException("Password verification interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
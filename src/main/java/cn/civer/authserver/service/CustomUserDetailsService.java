@@ -1,43 +1,89 @@
 package cn.civer.authserver.service;
 
 import cn.civer.authserver.entity.User;
+import cn.civer.authserver.repository.GenerationGuardedCache;
 import cn.civer.authserver.repository.UserRepository;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Collections;
 
+/**
+ * 登录时按用户名加载用户。查询结果以不可变快照缓存在本地（app.user-cache，查库期间的失效不会被覆盖，见 GenerationGuardedCache）；
+ * 每次返回新建的 UserDetails，认证成功后擦除凭据（eraseCredentials）不会影响缓存。
+ * 管理端修改角色 / 启用状态 / 密码或用户改名时须调用 {@link #evict}；多节点部署下其他节点依赖 TTL 过期。
+ * 不存在的用户名不缓存，新建用户立即可登录。密码编码器见 PasswordEncoderConfig。
+ */
 @Service
-@Configuration
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
 	private final UserRepository userRepository;
+	private final GenerationGuardedCache<String, UserSnapshot> cache;
 
-	public CustomUserDetailsService(UserRepository userRepository) {
+	public CustomUserDetailsService(UserRepository userRepository, MeterRegistry meterRegistry,
+			@Value("${app.user-cache.maximum-size:10000}") long maximumSize,
+			@Value("${app.user-cache.ttl:60s}") Duration timeToLive) {
 		this.userRepository = userRepository;
-	}
-
-	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+		Cache<String, UserSnapshot> cache =
+				Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).recordStats().build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+		this.cache = new GenerationGuardedCache<>(cache);
 	}
 
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-		User user = userRepository.findByUsername(username)
-				.orElseThrow(() -> new UsernameNotFoundException("User not found"));
+		UserSnapshot user = cache.getOrLoad(username,
+				name -> userRepository.findByUsername(name).map(UserSnapshot::of).orElse(null));
+		if (user == null) {
+			throw new UsernameNotFoundException("User not found");
+		}
 
 		return new org.springframework.security.core.userdetails.User(
-				user.getUsername(),
-				user.getPassword(),
-				user.isEnabled(), true, true, true,
-				Collections.singletonList(new SimpleGrantedAuthority(user.getRole())));
+				user.username(),
+				user.password(),
+				user.enabled(), true, true, true,
+				Collections.singletonList(new SimpleGrantedAuthority(user.role())));
+	}
+
+	/**
+	 * 登录成功后哈希需要升级（算法或参数与 app.password 不一致）时由 DaoAuthenticationProvider 调用，写回新哈希。
+	 */
+	@Override
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		userRepository.findByUsername(user.getUsername()).ifPresent(entity -> {
+			entity.setPassword(newPassword);
+			userRepository.save(entity);
+		});
+		evict(user.getUsername());
+		return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
+	}
+
+	/** 使某个用户名的缓存失效（修改角色、启用状态、密码，或改名时新旧用户名都要调用）。 */
+	public void evict(String username) {
+		if (username != null) {
+			cache.invalidate(username);
+		}
+	}
+
+	public void evictAll() {
+		cache.invalidateAll();
+	}
+
+	/** 缓存的用户快照：只含登录所需字段，与 JPA 实体脱离。 */
+	private record UserSnapshot(String username, String password, boolean enabled, String role) {
+
+		static UserSnapshot of(User user) {
+			return new UserSnapshot(user.getUsername(), user.getPassword(), user.isEnabled(), user.getRole());
+		}
 	}
 }
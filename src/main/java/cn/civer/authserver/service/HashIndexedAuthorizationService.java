@@ -0,0 +1,195 @@
+package cn.civer.authserver.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.security.oauth2.core.OAuth2DeviceCode;
+import org.springframework.security.oauth2.core.OAuth2UserCode;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 按 token 摘要查找授权的 {@link JdbcOAuth2AuthorizationService}：保存时为 state、授权码、access / refresh / ID token、
+ * 设备码与用户码计算 SHA-256（写入 *_hash 列，见 schema.sql），findByToken 按摘要走索引，不再对 text 列做全表扫描。
+ * 摘要在 Java 中计算（UTF-8 字节的 SHA-256），与 INSERT / UPDATE 同一条语句写入；补算使用的 PostgreSQL 表达式
+ * sha256(convert_to(x, 'UTF8')) 结果相同。
+ * <p>
+ * 父类的 INSERT / UPDATE 语句是私有常量，无法增加列，因此 save 使用本类的语句：父类参数映射（getAuthorizationParametersMapper）
+ * 的参数之后追加摘要参数，判断新增或更新的方式与父类一致（先 findById）。
+ * <p>
+ * 升级前写入的行 token_hash_version 为 NULL：由 {@link AuthorizationHashBackfill} 后台分批补算；补算完成前，摘要未命中时再在这些行中按原值查找
+ * （WHERE token_hash_version IS NULL，走 idx_oauth2_authorization_unhashed 部分索引，补算完成后几乎没有开销）。
+ */
+public class HashIndexedAuthorizationService extends JdbcOAuth2AuthorizationService {
+
+	/** 与 JdbcOAuth2AuthorizationService 读取的列一致（其常量为 private） */
+	private static final String COLUMN_NAMES = "id, registered_client_id, principal_name, authorization_grant_type, "
+			+ "authorized_scopes, attributes, state, "
+			+ "authorization_code_value, authorization_code_issued_at, authorization_code_expires_at, authorization_code_metadata, "
+			+ "access_token_value, access_token_issued_at, access_token_expires_at, access_token_metadata, access_token_type, access_token_scopes, "
+			+ "oidc_id_token_value, oidc_id_token_issued_at, oidc_id_token_expires_at, oidc_id_token_metadata, "
+			+ "refresh_token_value, refresh_token_issued_at, refresh_token_expires_at, refresh_token_metadata, "
+			+ "user_code_value, user_code_issued_at, user_code_expires_at, user_code_metadata, "
+			+ "device_code_value, device_code_issued_at, device_code_expires_at, device_code_metadata";
+
+	/** token 类型 -> 原值列；摘要列为同名去掉 _value 后加 _hash（state 为 state_hash） */
+	private static final Map<String, String> VALUE_COLUMNS = Map.of(
+			OAuth2ParameterNames.STATE, "state",
+			OAuth2ParameterNames.CODE, "authorization_code_value",
+			OAuth2TokenType.ACCESS_TOKEN.getValue(), "access_token_value",
+			OidcParameterNames.ID_TOKEN, "oidc_id_token_value",
+			OAuth2TokenType.REFRESH_TOKEN.getValue(), "refresh_token_value",
+			OAuth2ParameterNames.USER_CODE, "user_code_value",
+			OAuth2ParameterNames.DEVICE_CODE, "device_code_value");
+
+	/** 摘要参数的顺序 */
+	private static final List<String> HASHED_COLUMNS = VALUE_COLUMNS.values().stream().sorted().toList();
+
+	/** 用 SQL 重新计算全部摘要列的 SET 子句，供补算（AuthorizationHashBackfill）使用 */
+	static final String SET_HASHES = HASHED_COLUMNS.stream()
+			.map(column -> hashColumn(column) + " = sha256(convert_to(" + column + ", 'UTF8'))")
+			.collect(Collectors.joining(", ", "", ", token_hash_version = 1"));
+
+	private static final String HASH_COLUMN_NAMES = HASHED_COLUMNS.stream()
+			.map(HashIndexedAuthorizationService::hashColumn).collect(Collectors.joining(", "));
+
+	private static final String INSERT_SQL = "INSERT INTO oauth2_authorization (" + COLUMN_NAMES + ", " + HASH_COLUMN_NAMES
+			+ ", token_hash_version) VALUES (" + placeholders(COLUMN_NAMES.split(", ").length + HASHED_COLUMNS.size()) + ", 1)";
+
+	/** 与父类 UPDATE 相同（id 以外的全部列），加上摘要列；参数顺序同 INSERT，id 移到最后 */
+	private static final String UPDATE_SQL = "UPDATE oauth2_authorization SET "
+			+ Stream.concat(Arrays.stream(COLUMN_NAMES.split(", ")).skip(1),
+					HASHED_COLUMNS.stream().map(HashIndexedAuthorizationService::hashColumn))
+				.map(column -> column + " = ?").collect(Collectors.joining(", "))
+			+ ", token_hash_version = 1 WHERE id = ?";
+
+	private static final String LOAD_SQL = "SELECT " + COLUMN_NAMES + " FROM oauth2_authorization WHERE ";
+
+	private final boolean legacyFallback;
+	private final Counter legacyHits;
+
+	/**
+	 * @param legacyFallback 摘要未命中时是否在未补算的旧行中按原值查找；所有节点升级且补算完成后可关闭
+	 */
+	public HashIndexedAuthorizationService(JdbcOperations jdbcOperations,
+			RegisteredClientRepository registeredClientRepository, MeterRegistry meterRegistry, boolean legacyFallback) {
+		super(jdbcOperations, registeredClientRepository);
+		this.legacyFallback = legacyFallback;
+		this.legacyHits = Counter.builder("auth.authorization.hash.legacy-hits")
+				.description("Authorizations found by token value because their digests were not backfilled yet")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void save(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		// 摘要与 token 在同一条语句中写入：其他事务看到新 token 时摘要一定已经写好
+		List<SqlParameterValue> parameters = hashingParameters(authorization);
+		if (findById(authorization.getId()) == null) {
+			getJdbcOperations().update(INSERT_SQL, new ArgumentPreparedStatementSetter(parameters.toArray()));
+		} else {
+			parameters.add(parameters.removeFirst()); // id 在 WHERE 中
+			getJdbcOperations().update(UPDATE_SQL, new ArgumentPreparedStatementSetter(parameters.toArray()));
+		}
+	}
+
+	/** 父类参数映射的结果（顺序同 COLUMN_NAMES）之后，按 HASHED_COLUMNS 的顺序追加摘要参数 */
+	private List<SqlParameterValue> hashingParameters(OAuth2Authorization authorization) {
+		List<SqlParameterValue> parameters = new ArrayList<>(getAuthorizationParametersMapper().apply(authorization));
+		for (String column : HASHED_COLUMNS) {
+			parameters.add(new SqlParameterValue(Types.BINARY, sha256(tokenValue(authorization, column))));
+		}
+		return parameters;
+	}
+
+	private static String tokenValue(OAuth2Authorization authorization, String valueColumn) {
+		if ("state".equals(valueColumn)) {
+			return authorization.getAttribute(OAuth2ParameterNames.STATE);
+		}
+		OAuth2Authorization.Token<?> token = switch (valueColumn) {
+			case "authorization_code_value" -> authorization.getToken(OAuth2AuthorizationCode.class);
+			case "access_token_value" -> authorization.getAccessToken();
+			case "oidc_id_token_value" -> authorization.getToken(OidcIdToken.class);
+			case "refresh_token_value" -> authorization.getRefreshToken();
+			case "user_code_value" -> authorization.getToken(OAuth2UserCode.class);
+			case "device_code_value" -> authorization.getToken(OAuth2DeviceCode.class);
+			default -> throw new IllegalArgumentException("Unknown token column: " + valueColumn);
+		};
+		return token != null ? token.getToken().getTokenValue() : null;
+	}
+
+	@Override
+	public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+		Assert.hasText(token, "token cannot be empty");
+		List<String> columns;
+		if (tokenType == null) {
+			columns = List.copyOf(VALUE_COLUMNS.values());
+		} else if (VALUE_COLUMNS.containsKey(tokenType.getValue())) {
+			columns = List.of(VALUE_COLUMNS.get(tokenType.getValue()));
+		} else {
+			return null; // 与父类一致：未知类型查不到
+		}
+		Object[] hashArgs = new Object[columns.size()];
+		Arrays.fill(hashArgs, sha256(token));
+
+		String byHash = columns.stream().map(column -> hashColumn(column) + " = ?").collect(Collectors.joining(" OR "));
+		OAuth2Authorization authorization = first(LOAD_SQL + byHash, hashArgs);
+		if (authorization != null || !legacyFallback) {
+			return authorization;
+		}
+		Object[] valueArgs = new Object[columns.size()];
+		Arrays.fill(valueArgs, token);
+		String byValue = columns.stream().map(column -> column + " = ?").collect(Collectors.joining(" OR "));
+		authorization = first(LOAD_SQL + "token_hash_version IS NULL AND (" + byValue + ")", valueArgs);
+		if (authorization != null) {
+			legacyHits.increment();
+		}
+		return authorization;
+	}
+
+	private OAuth2Authorization first(String sql, Object[] args) {
+		List<OAuth2Authorization> result = getJdbcOperations().query(sql, getAuthorizationRowMapper(), args);
+		return result.isEmpty() ? null : result.getFirst();
+	}
+
+	private static String hashColumn(String valueColumn) {
+		return valueColumn.replace("_value", "") + "_hash";
+	}
+
+	/** 与 PostgreSQL 的 sha256(convert_to(value, 'UTF8')) 相同；null 仍为 null */
+	static byte[] sha256(String value) {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	private static String placeholders(int count) {
+		return String.join(", ", Collections.nCopies(count, "?"));
+	}
+}
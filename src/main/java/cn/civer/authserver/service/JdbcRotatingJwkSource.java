@@ -0,0 +1,195 @@
+package cn.civer.authserver.service;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 存放在数据库（表 oauth2_jwk）中的轮换签名密钥，所有节点共享同一组密钥，重启不再使已签发的 token 失效。
+ * <ul>
+ * <li>新密钥在 activate_at 之前只发布在 /oauth2/jwks 中（activation-delay），客户端缓存的 JWKS 过期前就已能看到它；</li>
+ * <li>activate_at 最新且已到达的密钥为当前签名密钥，被替换后继续发布 retention 时长，用于校验替换前签发的 token；</li>
+ * <li>轮换在 pg_advisory_xact_lock 下进行，多节点同时触发也只会生成一把新密钥；</li>
+ * <li>修改 app.jwk.algorithm 后按新算法提前生成一把密钥，同样经过 activation-delay 才开始签名。</li>
+ * </ul>
+ * 读取走不可变 {@link JWKSet} 快照（当前签名密钥排在最前），定时从库中刷新并整体替换。
+ */
+public class JdbcRotatingJwkSource implements JWKSource<SecurityContext>, InitializingBean {
+
+	private static final Logger log = LoggerFactory.getLogger(JdbcRotatingJwkSource.class);
+
+	/** pg_advisory_xact_lock 的锁编号，仅用于密钥轮换 */
+	private static final long ROTATION_LOCK_KEY = 0x6f61757468326a6bL;
+
+	private static final String SELECT_SQL = "SELECT kid, jwk, encrypted, activate_at FROM oauth2_jwk ORDER BY activate_at";
+	private static final String INSERT_SQL = "INSERT INTO oauth2_jwk (kid, jwk, encrypted, algorithm, activate_at) VALUES (?, ?, ?, ?, ?)";
+	private static final String DELETE_SQL = "DELETE FROM oauth2_jwk WHERE kid = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final TextEncryptor encryptor;
+	private final JWSAlgorithm algorithm;
+	private final Duration rotationInterval;
+	private final Duration activationDelay;
+	private final Duration retention;
+	private volatile JWKSet snapshot;
+
+	/**
+	 * @param encryptor 用于加密库中的私钥；为 null 时明文存储
+	 */
+	public JdbcRotatingJwkSource(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+			TextEncryptor encryptor, JWSAlgorithm algorithm, Duration rotationInterval, Duration activationDelay,
+			Duration retention) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.encryptor = encryptor;
+		this.algorithm = algorithm;
+		this.rotationInterval = rotationInterval;
+		this.activationDelay = activationDelay;
+		this.retention = retention;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		rotateIfDue();
+		reload();
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+		return jwkSelector.select(snapshot);
+	}
+
+	/** 当前快照（签名密钥在前），供 JWKS 之外的调用方使用。 */
+	public JWKSet getJwkSet() {
+		return snapshot;
+	}
+
+	/** 定时检查是否需要轮换，并从库中刷新快照（同步其他节点生成的密钥）。 */
+	@Scheduled(fixedDelayString = "${app.jwk.refresh-interval:1m}", initialDelayString = "${app.jwk.refresh-interval:1m}")
+	public void refresh() {
+		try {
+			rotateIfDue();
+			reload();
+		} catch (Exception e) {
+			log.warn("[jwk] refresh failed, keep current key set: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 没有任何密钥时生成一把立即生效的密钥；最新密钥距下次轮换不足 activation-delay 且尚无待生效密钥时，
+	 * 预先生成下一把，activate_at 为最新密钥的 activate_at + rotation-interval（至少为 now + activation-delay）；
+	 * 当前密钥的算法与配置不一致时，立即生成一把 now + activation-delay 生效的新算法密钥。
+	 */
+	void rotateIfDue() {
+		transactionTemplate.executeWithoutResult(status -> {
+			jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> { }, ROTATION_LOCK_KEY);
+			Instant now = Instant.now();
+			List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+					"SELECT algorithm, activate_at FROM oauth2_jwk ORDER BY activate_at DESC LIMIT 1");
+			if (rows.isEmpty()) {
+				insertNewKey(now);
+				return;
+			}
+			Instant newest = ((Timestamp) rows.getFirst().get("activate_at")).toInstant();
+			if (newest.isAfter(now)) {
+				return; // 已有待生效的密钥
+			}
+			if (!algorithm.getName().equals(rows.getFirst().get("algorithm"))) {
+				insertNewKey(now.plus(activationDelay));
+				return;
+			}
+			Instant nextActivation = newest.plus(rotationInterval);
+			if (!nextActivation.minus(activationDelay).isAfter(now)) {
+				Instant earliest = now.plus(activationDelay);
+				insertNewKey(nextActivation.isBefore(earliest) ? earliest : nextActivation);
+			}
+		});
+	}
+
+	private void insertNewKey(Instant activateAt) {
+		JWK jwk = SigningKeys.generate(algorithm);
+		String json = jwk.toJSONString();
+		boolean encrypted = encryptor != null;
+		jdbcTemplate.update(INSERT_SQL, jwk.getKeyID(), encrypted ? encryptor.encrypt(json) : json, encrypted,
+				algorithm.getName(), Timestamp.from(activateAt));
+		log.info("[jwk] generated {} signing key kid={} activateAt={}", algorithm, jwk.getKeyID(), activateAt);
+	}
+
+	/**
+	 * 重新加载快照：顺序为当前签名密钥、待生效密钥、仍在保留期内的旧密钥；超过保留期的旧密钥从库中删除。
+	 */
+	void reload() {
+		Instant now = Instant.now();
+		List<StoredKey> keys = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new StoredKey(rs.getString("kid"),
+				rs.getString("jwk"), rs.getBoolean("encrypted"), rs.getTimestamp("activate_at").toInstant()));
+		JWK signing = null;
+		List<JWK> pending = new ArrayList<>();
+		List<JWK> previous = new ArrayList<>();
+		for (int i = keys.size() - 1; i >= 0; i--) {
+			StoredKey key = keys.get(i);
+			if (key.activateAt().isAfter(now)) {
+				pending.add(parse(key));
+			} else if (signing == null) {
+				signing = parse(key);
+			} else {
+				// 被下一把已生效的密钥替换的时间
+				Instant supersededAt = keys.get(i + 1).activateAt();
+				if (supersededAt.plus(retention).isAfter(now)) {
+					previous.add(parse(key));
+				} else {
+					jdbcTemplate.update(DELETE_SQL, key.kid());
+					log.info("[jwk] removed retired key kid={}", key.kid());
+				}
+			}
+		}
+		if (signing == null) {
+			throw new IllegalStateException("No active signing key in oauth2_jwk");
+		}
+		List<JWK> ordered = new ArrayList<>(1 + pending.size() + previous.size());
+		ordered.add(signing);
+		ordered.addAll(pending);
+		ordered.addAll(previous);
+		JWKSet current = snapshot;
+		if (current == null || !current.getKeys().getFirst().getKeyID().equals(signing.getKeyID())) {
+			log.info("[jwk] signing key kid={} (published keys: {})", signing.getKeyID(), ordered.size());
+		}
+		snapshot = new JWKSet(ordered);
+	}
+
+	private JWK parse(StoredKey key) {
+		try {
+			String json = key.encrypted() ? requireEncryptor().decrypt(key.jwk()) : key.jwk();
+			return JWK.parse(json);
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot read JWK kid=" + key.kid() + ": " + e.getMessage(), e);
+		}
+	}
+
+	private TextEncryptor requireEncryptor() {
+		if (encryptor == null) {
+			throw new IllegalStateException("oauth2_jwk contains encrypted keys but app.jwk.encryption.password is not set");
+		}
+		return encryptor;
+	}
+
+	private record StoredKey(String kid, String jwk, boolean encrypted, Instant activateAt) {
+	}
+}
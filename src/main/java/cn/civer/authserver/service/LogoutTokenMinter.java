@@ -0,0 +1,51 @@
+package cn.civer.authserver.service;
+
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 签发 OIDC Back-Channel Logout 的 logout_token。
+ * 与 SAS 共用同一个 {@link JwtEncoder} Bean（当前签名密钥，签名器由编码器内部缓存），不必每批投递都重新创建；
+ * aud 可包含多个 client_id，用于一次退出只签一个 token 的模式。
+ */
+@Component
+public class LogoutTokenMinter {
+
+	static final String BACKCHANNEL_LOGOUT_EVENT = "http://schemas.openid.net/event/backchannel-logout";
+
+	private final JwtEncoder jwtEncoder;
+	private final SigningKeys signingKeys;
+
+	public LogoutTokenMinter(JwtEncoder jwtEncoder, SigningKeys signingKeys) {
+		this.jwtEncoder = jwtEncoder;
+		this.signingKeys = signingKeys;
+	}
+
+	/**
+	 * @param issuer        iss，须与客户端配置的 issuer-uri 一致
+	 * @param principalName sub 与 sid
+	 * @param audiences     aud，客户端只校验其中是否包含自身 client_id
+	 */
+	public String mint(String issuer, String principalName, Collection<String> audiences) {
+		JwsHeader jwsHeader = JwsHeader.with(signingKeys.currentAlgorithm()).build();
+		JwtClaimsSet claims = JwtClaimsSet.builder()
+				.issuer(issuer)
+				.subject(principalName)
+				.audience(List.copyOf(audiences))
+				.issuedAt(Instant.now())
+				.id(UUID.randomUUID().toString())
+				.claim("events", Map.of(BACKCHANNEL_LOGOUT_EVENT, Map.of()))
+				.claim("sid", principalName)
+				.build();
+		return jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, claims)).getTokenValue();
+	}
+}
@@ -0,0 +1,130 @@
+package cn.civer.authserver.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * refresh token 轮换下的重放检测：每个授权（一个 token 家族）签发过的 refresh token 以 SHA-256 摘要记录在
+ * 窄表 oauth2_refresh_token_family 中（外键级联删除，见 schema.sql）。换 token 时若提交的是已被轮换掉的旧 refresh token，
+ * 说明它可能已泄露，删除整个授权：当前的 refresh token 随之失效，家族记录级联删除。
+ * <p>
+ * 家族表只保留尚未过期的旧 token，每次保存授权时顺带清理，单个家族的行数不超过 refresh token 有效期内的轮换次数。
+ * 已签发的 JWT access token 在到期前仍可在资源服务器本地验签通过，重放检测只保证不会再签发新 token。
+ */
+public class RefreshTokenFamilyService implements OAuth2AuthorizationService {
+
+	private static final Logger log = LoggerFactory.getLogger(RefreshTokenFamilyService.class);
+
+	private static final String HASH = "sha256(convert_to(?, 'UTF8'))";
+
+	private static final String INSERT_SQL = "INSERT INTO oauth2_refresh_token_family (token_hash, authorization_id, expires_at) "
+			+ "VALUES (" + HASH + ", ?, ?) ON CONFLICT (token_hash) DO NOTHING";
+
+	private static final String SUPERSEDE_SQL = "UPDATE oauth2_refresh_token_family SET superseded_at = ? "
+			+ "WHERE authorization_id = ? AND superseded_at IS NULL AND token_hash <> " + HASH;
+
+	private static final String PRUNE_SQL = "DELETE FROM oauth2_refresh_token_family WHERE authorization_id = ? AND expires_at < ?";
+
+	private static final String FIND_SQL = "SELECT authorization_id, superseded_at FROM oauth2_refresh_token_family "
+			+ "WHERE token_hash = " + HASH;
+
+	private final OAuth2AuthorizationService delegate;
+	private final JdbcOperations jdbcOperations;
+	private final TransactionTemplate transactionTemplate;
+	private final Duration reuseGrace;
+	private final Counter replays;
+
+	/**
+	 * @param delegate   实际存储授权的服务（须为 JDBC，家族表以外键引用 oauth2_authorization）
+	 * @param reuseGrace 旧 token 被轮换后的宽限期：期内再次提交只拒绝、不吊销（容忍客户端并发刷新或网络重试）
+	 */
+	public RefreshTokenFamilyService(OAuth2AuthorizationService delegate, JdbcOperations jdbcOperations,
+			PlatformTransactionManager transactionManager, Duration reuseGrace, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.jdbcOperations = jdbcOperations;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.reuseGrace = reuseGrace;
+		this.replays = Counter.builder("auth.refresh-token.replays")
+				.description("Superseded refresh tokens presented again; the whole token family was revoked")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void save(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		OAuth2Authorization.Token<OAuth2RefreshToken> refreshToken = authorization.getRefreshToken();
+		if (refreshToken == null) {
+			delegate.save(authorization);
+			return;
+		}
+		transactionTemplate.executeWithoutResult(status -> {
+			delegate.save(authorization);
+			String value = refreshToken.getToken().getTokenValue();
+			Instant now = Instant.now();
+			Instant expiresAt = refreshToken.getToken().getExpiresAt();
+			jdbcOperations.update(INSERT_SQL, value, authorization.getId(),
+					expiresAt != null ? Timestamp.from(expiresAt) : null);
+			jdbcOperations.update(SUPERSEDE_SQL, Timestamp.from(now), authorization.getId(), value);
+			jdbcOperations.update(PRUNE_SQL, authorization.getId(), Timestamp.from(now));
+		});
+	}
+
+	@Override
+	public void remove(OAuth2Authorization authorization) {
+		delegate.remove(authorization);
+	}
+
+	@Override
+	public OAuth2Authorization findById(String id) {
+		return delegate.findById(id);
+	}
+
+	@Override
+	public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+		OAuth2Authorization authorization = delegate.findByToken(token, tokenType);
+		if (authorization == null && OAuth2TokenType.REFRESH_TOKEN.equals(tokenType)) {
+			detectReplay(token);
+		}
+		return authorization;
+	}
+
+	/** 提交的 refresh token 已不在授权中：若它属于某个仍存在的家族且已被轮换，吊销该家族。 */
+	private void detectReplay(String token) {
+		List<Superseded> rows = jdbcOperations.query(FIND_SQL,
+				(rs, rowNum) -> new Superseded(rs.getString("authorization_id"), rs.getTimestamp("superseded_at")), token);
+		if (rows.isEmpty() || rows.getFirst().supersededAt() == null) {
+			return;
+		}
+		Superseded row = rows.getFirst();
+		if (row.supersededAt().toInstant().plus(reuseGrace).isAfter(Instant.now())) {
+			log.info("[refresh-token] superseded token reused within grace period, authorizationId={}", row.authorizationId());
+			return;
+		}
+		OAuth2Authorization family = delegate.findById(row.authorizationId());
+		if (family != null) {
+			delegate.remove(family); // 家族表记录随外键级联删除
+		}
+		replays.increment();
+		log.warn("[refresh-token] superseded refresh token replayed, revoked authorizationId={} principal={} client={}",
+				row.authorizationId(), family != null ? family.getPrincipalName() : null,
+				family != null ? family.getRegisteredClientId() : null);
+	}
+
+	private record Superseded(String authorizationId, Timestamp supersededAt) {
+	}
+}
@@ -0,0 +1,198 @@
+package cn.civer.authserver.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 已注册客户端的内存索引：预先解析 redirect_uris，得到允许的 logout 跳转 host 集合与各客户端的 /api/sso-logout 地址。
+ * 启动后全量构建一次，管理端增删改客户端时增量更新；另按 refresh-interval 定时全量重建，以同步其他节点的修改。
+ * 读操作只访问不可变快照（一次 volatile 读 + 哈希查找），不查库、不解析 URI。
+ */
+@Component
+public class RegisteredClientEndpointIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(RegisteredClientEndpointIndex.class);
+	private static final String SSO_LOGOUT_PATH = "/api/sso-logout";
+	private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final Timer rebuildTimer;
+	private final ReentrantLock writeLock = new ReentrantLock();
+	/** 增量修改计数（受 writeLock 保护）：全量重建在查库期间若有增量修改，查到的结果可能不含该修改，不能覆盖 */
+	private long modifications;
+	private volatile Snapshot snapshot;
+
+	public RegisteredClientEndpointIndex(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.rebuildTimer = Timer.builder("auth.client.index.rebuild")
+				.description("Full rebuild time of the registered-client endpoint index")
+				.register(meterRegistry);
+		Gauge.builder("auth.client.index.size", this, RegisteredClientEndpointIndex::size)
+				.description("Registered clients in the endpoint index")
+				.register(meterRegistry);
+	}
+
+	/** host（忽略大小写）是否为某个已注册客户端 redirect_uri 的 host。 */
+	public boolean isAllowedHost(String host) {
+		return host != null && current().hosts().contains(host.toLowerCase(Locale.ROOT));
+	}
+
+	/** 所有客户端的 Back-Channel Logout 投递目标（同一客户端同一地址只出现一次）。 */
+	public List<BackchannelLogoutOutbox.Target> logoutTargets() {
+		return current().targets();
+	}
+
+	public int size() {
+		Snapshot s = snapshot;
+		return s != null ? s.clients().size() : 0;
+	}
+
+	/** 新增或修改客户端后调用。 */
+	public void upsert(RegisteredClient client) {
+		writeLock.lock();
+		try {
+			Map<String, ClientEndpoints> clients = new HashMap<>(current().clients());
+			clients.put(client.getClientId(), ClientEndpoints.of(client.getClientId(), client.getRedirectUris()));
+			snapshot = Snapshot.of(clients);
+			modifications++;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/** 删除客户端后调用。 */
+	public void remove(String clientId) {
+		writeLock.lock();
+		try {
+			Map<String, ClientEndpoints> clients = new HashMap<>(current().clients());
+			if (clients.remove(clientId) != null) {
+				snapshot = Snapshot.of(clients);
+			}
+			modifications++;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		current();
+	}
+
+	/** 从 oauth2_registered_client 全量重建；多节点部署时用于同步其他节点上的修改。 */
+	@Scheduled(fixedDelayString = "${app.client-index.refresh-interval:5m}",
+			initialDelayString = "${app.client-index.refresh-interval:5m}")
+	public void rebuild() {
+		try {
+			rebuildTimer.record(this::loadAll);
+		} catch (Exception e) {
+			log.warn("[client-index] rebuild failed: {}", e.getMessage());
+		}
+	}
+
+	private Snapshot current() {
+		Snapshot s = snapshot;
+		if (s == null) {
+			rebuildTimer.record(this::loadAll);
+			s = snapshot;
+		}
+		return s;
+	}
+
+	/**
+	 * 查库不持有 writeLock（不阻塞增量修改）；替换快照前确认期间没有增量修改，否则重新查询。
+	 * 多次重试仍被打断时放弃本次重建，保留含增量修改的当前快照，等下一次定时重建。
+	 */
+	private void loadAll() {
+		for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+			long seen = modificationCount();
+			Map<String, ClientEndpoints> clients = new HashMap<>();
+			jdbcTemplate.query("SELECT client_id, redirect_uris FROM oauth2_registered_client", rs -> {
+				String clientId = rs.getString("client_id");
+				String blobs = rs.getString("redirect_uris");
+				List<String> uris = blobs == null ? List.of() : Arrays.asList(blobs.split(","));
+				clients.put(clientId, ClientEndpoints.of(clientId, uris));
+			});
+			writeLock.lock();
+			try {
+				// 有增量修改说明 snapshot 已由 upsert/remove（经 current() 加载后）设置，不会为 null
+				if (modifications == seen) {
+					snapshot = Snapshot.of(clients);
+					log.debug("[client-index] rebuilt: clients={}", clients.size());
+					return;
+				}
+			} finally {
+				writeLock.unlock();
+			}
+		}
+		log.debug("[client-index] rebuild skipped: concurrent modifications during {} attempts", MAX_REBUILD_ATTEMPTS);
+	}
+
+	private long modificationCount() {
+		writeLock.lock();
+		try {
+			return modifications;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/** 单个客户端解析后的 redirect host 与 logout 地址 */
+	private record ClientEndpoints(String clientId, Set<String> hosts, Set<String> logoutUrls) {
+
+		static ClientEndpoints of(String clientId, Collection<String> redirectUris) {
+			Set<String> hosts = new HashSet<>();
+			Set<String> logoutUrls = new LinkedHashSet<>();
+			for (String uri : redirectUris) {
+				if (uri == null || uri.isBlank()) continue;
+				try {
+					URI u = new URI(uri.trim());
+					if (u.getHost() == null) continue;
+					hosts.add(u.getHost().toLowerCase(Locale.ROOT));
+					logoutUrls.add(u.getScheme() + "://" + u.getHost()
+							+ (u.getPort() != -1 ? ":" + u.getPort() : "") + SSO_LOGOUT_PATH);
+				} catch (Exception ignored) { }
+			}
+			return new ClientEndpoints(clientId, Set.copyOf(hosts), Set.copyOf(logoutUrls));
+		}
+	}
+
+	/** 不可变快照：写入时整体替换 */
+	private record Snapshot(Map<String, ClientEndpoints> clients, Set<String> hosts,
+			List<BackchannelLogoutOutbox.Target> targets) {
+
+		static Snapshot of(Map<String, ClientEndpoints> clients) {
+			Set<String> hosts = new HashSet<>();
+			List<BackchannelLogoutOutbox.Target> targets = new ArrayList<>();
+			for (ClientEndpoints c : clients.values()) {
+				hosts.addAll(c.hosts());
+				for (String url : c.logoutUrls()) {
+					targets.add(new BackchannelLogoutOutbox.Target(c.clientId(), url));
+				}
+			}
+			return new Snapshot(Map.copyOf(clients), Set.copyOf(hosts), List.copyOf(targets));
+		}
+	}
+}
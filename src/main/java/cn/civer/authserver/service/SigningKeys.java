@@ -0,0 +1,105 @@
+package cn.civer.authserver.service;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 签名算法（app.jwk.algorithm）相关：按算法生成密钥，并给出当前签名密钥的算法。
+ * access token / ID token（TokenConfig.jwtTokenCustomizer）与 logout_token 的 JWS 头都取 {@link #currentAlgorithm()}，
+ * 因此切换算法时由密钥轮换决定何时生效，签名头与密钥始终一致。
+ */
+@Component
+public class SigningKeys {
+
+	/** 支持的签名算法；EdDSA 需额外引入 Tink 且 Spring 的 SignatureAlgorithm 不包含，暂不支持 */
+	public static final List<String> SUPPORTED_ALGORITHMS = List.of("RS256", "ES256", "ES384");
+
+	private static final JWKSelector ALL_KEYS = new JWKSelector(new JWKMatcher.Builder().build());
+
+	private final JWKSource<SecurityContext> jwkSource;
+
+	public SigningKeys(JWKSource<SecurityContext> jwkSource) {
+		this.jwkSource = jwkSource;
+	}
+
+	/** 当前签名密钥（JWKSource 返回的第一把）对应的算法。 */
+	public SignatureAlgorithm currentAlgorithm() {
+		try {
+			List<JWK> keys = jwkSource.get(ALL_KEYS, null);
+			return keys.isEmpty() ? SignatureAlgorithm.RS256 : algorithmOf(keys.getFirst());
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot resolve signing key: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * JWKSource 中发布的全部密钥（当前、待生效、保留期内的旧密钥）的算法，去重后按密钥顺序排列（当前签名算法在前）。
+	 * 用于 Discovery 的 id_token_signing_alg_values_supported：只声明确实有密钥的算法。
+	 */
+	public List<String> publishedAlgorithms() {
+		try {
+			Set<String> algorithms = new LinkedHashSet<>();
+			for (JWK key : jwkSource.get(ALL_KEYS, null)) {
+				algorithms.add(algorithmOf(key).getName());
+			}
+			return algorithms.isEmpty() ? List.of(SignatureAlgorithm.RS256.getName()) : List.copyOf(algorithms);
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot resolve signing keys: " + e.getMessage(), e);
+		}
+	}
+
+	public static JWSAlgorithm parseAlgorithm(String name) {
+		String upper = name.trim().toUpperCase();
+		if (!SUPPORTED_ALGORITHMS.contains(upper)) {
+			throw new IllegalArgumentException("Unsupported app.jwk.algorithm '" + name + "', expected one of "
+					+ SUPPORTED_ALGORITHMS);
+		}
+		return JWSAlgorithm.parse(upper);
+	}
+
+	/** 生成一把签名密钥：RS256 为 RSA-2048，ES256 / ES384 为 P-256 / P-384 曲线。 */
+	public static JWK generate(JWSAlgorithm algorithm) {
+		try {
+			String kid = UUID.randomUUID().toString();
+			if (JWSAlgorithm.ES256.equals(algorithm) || JWSAlgorithm.ES384.equals(algorithm)) {
+				Curve curve = JWSAlgorithm.ES256.equals(algorithm) ? Curve.P_256 : Curve.P_384;
+				return new ECKeyGenerator(curve).keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(algorithm).generate();
+			}
+			return new RSAKeyGenerator(2048).keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.RS256).generate();
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/** 密钥的签名算法：优先取 JWK 的 alg，未设置时按密钥类型 / 曲线推断。 */
+	public static SignatureAlgorithm algorithmOf(JWK jwk) {
+		if (jwk.getAlgorithm() != null) {
+			SignatureAlgorithm alg = SignatureAlgorithm.from(jwk.getAlgorithm().getName());
+			if (alg != null) {
+				return alg;
+			}
+		}
+		if (jwk instanceof ECKey ec) {
+			if (Curve.P_384.equals(ec.getCurve())) return SignatureAlgorithm.ES384;
+			if (Curve.P_521.equals(ec.getCurve())) return SignatureAlgorithm.ES512;
+			return SignatureAlgorithm.ES256;
+		}
+		return SignatureAlgorithm.RS256;
+	}
+}
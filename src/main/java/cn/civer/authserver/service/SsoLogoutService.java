@@ -1,31 +1,50 @@
 package cn.civer.authserver.service;
 
+import cn.civer.authserver.repository.CachingAuthorizationConsentService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
 import org.springframework.stereotype.Service;
-
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * SSO 全局退出：清除该用户的授权同意并向所有客户端发送 OIDC Back-Channel Logout。
+ * 通知先写入发件箱（oauth2_logout_outbox）再异步投递，客户端暂时不可用时会自动重试。
  * 可供「用户主动登出」与「修改账号/密码成功后」等场景复用。
  */
 @Service
 public class SsoLogoutService {
 
+	private static final Logger log = LoggerFactory.getLogger(SsoLogoutService.class);
+
 	private final JdbcTemplate jdbcTemplate;
-	private final JWKSource<SecurityContext> jwkSource;
+	private final TransactionTemplate transactionTemplate;
 	private final AuthorizationServerSettings authorizationServerSettings;
+	private final BackchannelLogoutOutbox logoutOutbox;
+	private final BackchannelLogoutOutboxWorker logoutOutboxWorker;
+	private final RegisteredClientEndpointIndex clientEndpointIndex;
+	private final CachingAuthorizationConsentService authorizationConsentService;
 
 	public SsoLogoutService(JdbcTemplate jdbcTemplate,
-			JWKSource<SecurityContext> jwkSource,
-			AuthorizationServerSettings authorizationServerSettings) {
+			PlatformTransactionManager transactionManager,
+			AuthorizationServerSettings authorizationServerSettings,
+			BackchannelLogoutOutbox logoutOutbox,
+			BackchannelLogoutOutboxWorker logoutOutboxWorker,
+			RegisteredClientEndpointIndex clientEndpointIndex,
+			CachingAuthorizationConsentService authorizationConsentService) {
 		this.jdbcTemplate = jdbcTemplate;
-		this.jwkSource = jwkSource;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
 		this.authorizationServerSettings = authorizationServerSettings;
+		this.logoutOutbox = logoutOutbox;
+		this.logoutOutboxWorker = logoutOutboxWorker;
+		this.clientEndpointIndex = clientEndpointIndex;
+		this.authorizationConsentService = authorizationConsentService;
 	}
 
 	/**
@@ -33,34 +52,55 @@ public class SsoLogoutService {
 	 *
 	 * @param principalName 当前主体名（一般为用户名，与 oauth2_authorization_consent.principal_name 一致）
 	 * @param issuer        签发者 URL，若为 null 则使用 AuthorizationServerSettings 中的配置
+	 * @return 广播完成后给出投递总数与客户端确认（2xx）数；调用方无需等待
 	 */
-	public void performGlobalLogout(String principalName, String issuer) {
+	public CompletableFuture<BackchannelLogoutDispatcher.DispatchSummary> performGlobalLogout(String principalName,
+			String issuer) {
 		if (principalName == null || principalName.isBlank()) {
-			return;
+			return CompletableFuture.completedFuture(new BackchannelLogoutDispatcher.DispatchSummary(0, 0));
 		}
-		String sqlDeleteConsent = "DELETE FROM oauth2_authorization_consent WHERE principal_name = ?";
-		jdbcTemplate.update(sqlDeleteConsent, principalName);
-		System.out.println("SSO Logout: Cleared all consents for user '" + principalName + "'");
-
 		String resolvedIssuer = (issuer != null && !issuer.isBlank())
 				? issuer
 				: authorizationServerSettings.getIssuer();
+		String eventId = java.util.UUID.randomUUID().toString();
+
+		// 删除 consent 与写入发件箱在同一事务内：要么都生效，要么都不生效
+		transactionTemplate.executeWithoutResult(status -> {
+			String sqlDeleteConsent = "DELETE FROM oauth2_authorization_consent WHERE principal_name = ?";
+			jdbcTemplate.update(sqlDeleteConsent, principalName);
+			if (resolvedIssuer != null) {
+				logoutOutbox.enqueue(eventId, principalName, resolvedIssuer, clientEndpointIndex.logoutTargets());
+			}
+		});
+		authorizationConsentService.evictByPrincipal(principalName);
+		log.info("[sso-logout] cleared all consents for user '{}'", principalName);
+
 		if (resolvedIssuer == null) {
-			System.err.println("SSO Logout: No issuer configured, skip broadcast");
-			return;
+			log.warn("[sso-logout] no issuer configured, skip broadcast");
+			return CompletableFuture.completedFuture(new BackchannelLogoutDispatcher.DispatchSummary(0, 0));
 		}
-		broadcastBackchannelLogout(principalName, resolvedIssuer);
+		// 提交后立即在后台投递；失败的行留在发件箱中由 worker 退避重试
+		return logoutOutboxWorker.deliverEvent(eventId)
+				.whenComplete((summary, ex) -> {
+					if (summary != null) {
+						log.info("[sso-logout] {}/{} clients acknowledged logout of '{}'", summary.acknowledged(),
+								summary.total(), principalName);
+					} else if (ex != null) {
+						log.warn("[sso-logout] immediate delivery failed, left to outbox retry", ex);
+					}
+				});
 	}
 
 	/**
 	 * 仅根据配置的 issuer 执行全局退出（适用于无 HttpServletRequest 的调用，如修改用户信息成功后）。
 	 */
-	public void performGlobalLogout(String principalName) {
-		performGlobalLogout(principalName, null);
+	public CompletableFuture<BackchannelLogoutDispatcher.DispatchSummary> performGlobalLogout(String principalName) {
+		return performGlobalLogout(principalName, null);
 	}
 
 	/**
 	 * 校验 redirect_uri 是否允许（仅允许已注册客户端 redirect_uris 所在 host 的 URL），用于 logout 后跳回指定客户端。
+	 * host 集合取自 {@link RegisteredClientEndpointIndex}，不查库。
 	 */
 	public boolean isAllowedLogoutRedirect(String redirectUri) {
 		try {
@@ -70,22 +110,7 @@ public class SsoLogoutService {
 				return false;
 			String host = uri.getHost();
 			if (host == null || host.isBlank()) return false;
-			String sql = "SELECT redirect_uris FROM oauth2_registered_client";
-			java.util.List<java.util.Map<String, Object>> rows = jdbcTemplate.queryForList(sql);
-			java.util.Set<String> allowedHosts = new java.util.HashSet<>();
-			for (java.util.Map<String, Object> row : rows) {
-				Object val = row.get("redirect_uris");
-				String blobs = val != null ? val.toString() : null;
-				if (blobs == null) continue;
-				for (String one : blobs.split(",")) {
-						if (one == null || one.isBlank()) continue;
-						try {
-							java.net.URI u = new java.net.URI(one.trim());
-							if (u.getHost() != null) allowedHosts.add(u.getHost().toLowerCase());
-						} catch (Exception ignored) { }
-					}
-			}
-			return allowedHosts.contains(host.toLowerCase());
+			return clientEndpointIndex.isAllowedHost(host);
 		} catch (Exception e) {
 			return false;
 		}
@@ -109,83 +134,4 @@ public class SsoLogoutService {
 		}
 		return null;
 	}
-
-	private void broadcastBackchannelLogout(String principalName, String issuer) {
-		try {
-			org.springframework.security.oauth2.jwt.NimbusJwtEncoder jwtEncoder =
-					new org.springframework.security.oauth2.jwt.NimbusJwtEncoder(jwkSource);
-
-			String sqlSelectClients = "SELECT client_id, redirect_uris FROM oauth2_registered_client";
-			java.util.List<java.util.Map<String, Object>> clientRows = jdbcTemplate.queryForList(sqlSelectClients);
-
-			java.util.Set<String> processedClientUrls = new java.util.HashSet<>();
-
-			for (java.util.Map<String, Object> row : clientRows) {
-				String clientId = (String) row.get("client_id");
-				String blobs = (String) row.get("redirect_uris");
-				if (blobs == null) continue;
-
-				String[] uris = blobs.split(",");
-				java.util.Set<String> thisClientUrls = new java.util.HashSet<>();
-				for (String uri : uris) {
-					if (uri.isBlank()) continue;
-					try {
-						java.net.URI u = new java.net.URI(uri.trim());
-						String logoutUrl = u.getScheme() + "://" + u.getHost()
-								+ (u.getPort() != -1 ? ":" + u.getPort() : "") + "/api/sso-logout";
-						thisClientUrls.add(logoutUrl);
-					} catch (Exception ignored) { }
-				}
-
-				for (String logoutUrl : thisClientUrls) {
-					String key = clientId + "|" + logoutUrl;
-					if (processedClientUrls.contains(key)) continue;
-					processedClientUrls.add(key);
-					try {
-						String logoutToken = generateLogoutToken(jwtEncoder, principalName, clientId, issuer);
-						sendLogoutToken(logoutUrl, logoutToken);
-					} catch (Exception e) {
-						System.err.println("DEBUG: Error broadcasting logout to " + logoutUrl + ": " + e.getMessage());
-					}
-				}
-			}
-		} catch (Exception e) {
-			System.err.println("Error during OIDC broadcast logout: " + e.getMessage());
-		}
-	}
-
-	private String generateLogoutToken(org.springframework.security.oauth2.jwt.JwtEncoder jwtEncoder,
-			String principalName, String audience, String issuer) {
-		org.springframework.security.oauth2.jwt.JwsHeader jwsHeader = org.springframework.security.oauth2.jwt.JwsHeader
-				.with(org.springframework.security.oauth2.jose.jws.SignatureAlgorithm.RS256).build();
-		org.springframework.security.oauth2.jwt.JwtClaimsSet claims = org.springframework.security.oauth2.jwt.JwtClaimsSet
-				.builder()
-				.issuer(issuer)
-				.subject(principalName)
-				.audience(java.util.Collections.singletonList(audience))
-				.issuedAt(java.time.Instant.now())
-				.id(java.util.UUID.randomUUID().toString())
-				.claim("events",
-						java.util.Collections.singletonMap("http://schemas.openid.net/event/backchannel-logout",
-								new java.util.HashMap<>()))
-				.claim("sid", principalName)
-				.build();
-		return jwtEncoder.encode(org.springframework.security.oauth2.jwt.JwtEncoderParameters.from(jwsHeader, claims))
-				.getTokenValue();
-	}
-
-	private void sendLogoutToken(String url, String token) {
-		java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
-		java.net.http.HttpRequest req = java.net.http.HttpRequest.newBuilder()
-				.uri(java.net.URI.create(url))
-				.header("Content-Type", "application/x-www-form-urlencoded")
-				.POST(java.net.http.HttpRequest.BodyPublishers.ofString("logout_token=" + token))
-				.build();
-		client.sendAsync(req, java.net.http.HttpResponse.BodyHandlers.discarding())
-				.thenAccept(res -> System.out.println("Logout token sent to " + url + " code=" + res.statusCode()))
-				.exceptionally(ex -> {
-					System.err.println("Failed to send token to " + url + ": " + ex.getMessage());
-					return null;
-				});
-	}
 }
@@ -0,0 +1,37 @@
+package cn.civer.authserver.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 管理端列表接口的 ETag：取 app_table_version 中该表的 (epoch, version)，由 schema.sql 中的语句级触发器在每次写入后递增，
+ * 读取只是一次主键查询。须在查询列表之前取版本号：期间若有写入，返回的 ETag 偏旧，下次请求会因不一致而重新获取，不会漏掉修改。
+ */
+@Service
+public class TableVersionService {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public TableVersionService(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * @param table      app_table_version 中登记的表名（users、oauth2_registered_client）
+	 * @param qualifiers 影响响应内容的请求参数（分页游标、过滤条件等），同一版本下不同参数的 ETag 不同
+	 */
+	public String etag(String table, Object... qualifiers) {
+		List<String> stamp = jdbcTemplate.query("SELECT epoch, version FROM app_table_version WHERE table_name = ?",
+				(rs, rowNum) -> rs.getString("epoch") + ":" + rs.getLong("version"), table);
+		if (stamp.isEmpty()) {
+			throw new IllegalStateException("Table '" + table + "' is not registered in app_table_version");
+		}
+		String source = table + "\n" + stamp.getFirst() + "\n" + Arrays.deepToString(qualifiers);
+		return "\"" + DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+}
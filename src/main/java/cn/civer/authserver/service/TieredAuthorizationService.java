@@ -0,0 +1,140 @@
+package cn.civer.authserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 两级 {@link OAuth2AuthorizationService}：授权码模式下尚未换取 token 的授权（state 阶段的同意页、已签发授权码）只放在本机内存，
+ * 换取 access / refresh token 时才写入 JDBC，授权码随该行一同落库（重放检测照常生效），每次登录少一次宽行的写入和一次读取。
+ * 内存条目以 id、state、授权码为键（共用同一个对象），按授权码到期时间（state 阶段按 state-ttl）过期，总数受 maximum-size 限制。
+ * <p>
+ * 仅适用于单节点部署：/oauth2/token 由客户端后端直接调用，无法保证与 /oauth2/authorize 落在同一节点，
+ * 多节点时授权码会在其他节点上“找不到”。因此默认关闭（app.authorization-hot-tier.enabled）。
+ */
+public class TieredAuthorizationService implements OAuth2AuthorizationService {
+
+	private static final String ID_KEY = "id:";
+	private static final String STATE_KEY = "state:";
+	private static final String CODE_KEY = "code:";
+
+	private final OAuth2AuthorizationService delegate;
+	private final Duration stateTimeToLive;
+	private final Cache<String, OAuth2Authorization> hot;
+
+	/**
+	 * @param delegate        持久层（JDBC）
+	 * @param maximumSize     内存中最多保留的键数（每个授权最多 3 个键）
+	 * @param stateTimeToLive 尚未签发授权码（同意进行中）的授权在内存中的保留时间
+	 */
+	public TieredAuthorizationService(OAuth2AuthorizationService delegate, long maximumSize, Duration stateTimeToLive,
+			MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.stateTimeToLive = stateTimeToLive;
+		this.hot = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfter(Expiry.writing((String key, OAuth2Authorization authorization) -> timeToLive(authorization)))
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, hot, "authorizationHotTier");
+	}
+
+	@Override
+	public void save(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		if (isCodeStage(authorization)) {
+			OAuth2Authorization previous = hot.asMap().put(ID_KEY + authorization.getId(), authorization);
+			String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+			if (state != null) {
+				hot.put(STATE_KEY + state, authorization);
+			}
+			OAuth2Authorization.Token<OAuth2AuthorizationCode> code = authorization.getToken(OAuth2AuthorizationCode.class);
+			if (code != null) {
+				hot.put(CODE_KEY + code.getToken().getTokenValue(), authorization);
+			}
+			if (previous != null) {
+				removeTokenKeys(previous); // 只删仍指向旧对象的键，刚写入的同名键不受影响
+			}
+			return;
+		}
+		// 已进入 token 阶段：先落库再移出内存，期间并发的查找总能在其中一层找到
+		delegate.save(authorization);
+		evictHot(authorization.getId());
+	}
+
+	@Override
+	public void remove(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		if (evictHot(authorization.getId()) == null) {
+			delegate.remove(authorization);
+		}
+	}
+
+	@Override
+	public OAuth2Authorization findById(String id) {
+		Assert.hasText(id, "id cannot be empty");
+		OAuth2Authorization authorization = hot.getIfPresent(ID_KEY + id);
+		return authorization != null ? authorization : delegate.findById(id);
+	}
+
+	@Override
+	public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+		Assert.hasText(token, "token cannot be empty");
+		OAuth2Authorization authorization = null;
+		if (tokenType == null || OAuth2ParameterNames.STATE.equals(tokenType.getValue())) {
+			authorization = hot.getIfPresent(STATE_KEY + token);
+		}
+		if (authorization == null && (tokenType == null || OAuth2ParameterNames.CODE.equals(tokenType.getValue()))) {
+			authorization = hot.getIfPresent(CODE_KEY + token);
+		}
+		return authorization != null ? authorization : delegate.findByToken(token, tokenType);
+	}
+
+	/** 授权码模式且尚未签发 access / refresh token（设备码等其他模式直接落库）。 */
+	private static boolean isCodeStage(OAuth2Authorization authorization) {
+		return AuthorizationGrantType.AUTHORIZATION_CODE.equals(authorization.getAuthorizationGrantType())
+				&& authorization.getAccessToken() == null && authorization.getRefreshToken() == null;
+	}
+
+	/** 移除某个授权在内存中的全部键，返回被移除的授权（不在内存中时为 null）。 */
+	private OAuth2Authorization evictHot(String id) {
+		OAuth2Authorization previous = hot.asMap().remove(ID_KEY + id);
+		if (previous != null) {
+			removeTokenKeys(previous);
+		}
+		return previous;
+	}
+
+	private void removeTokenKeys(OAuth2Authorization authorization) {
+		String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+		if (state != null) {
+			hot.asMap().remove(STATE_KEY + state, authorization);
+		}
+		OAuth2Authorization.Token<OAuth2AuthorizationCode> code = authorization.getToken(OAuth2AuthorizationCode.class);
+		if (code != null) {
+			hot.asMap().remove(CODE_KEY + code.getToken().getTokenValue(), authorization);
+		}
+	}
+
+	private Duration timeToLive(OAuth2Authorization authorization) {
+		OAuth2Authorization.Token<OAuth2AuthorizationCode> code = authorization.getToken(OAuth2AuthorizationCode.class);
+		Instant expiresAt = code != null ? code.getToken().getExpiresAt() : null;
+		if (expiresAt == null) {
+			return stateTimeToLive;
+		}
+		Duration remaining = Duration.between(Instant.now(), expiresAt);
+		return remaining.isNegative() ? Duration.ZERO : remaining;
+	}
+}
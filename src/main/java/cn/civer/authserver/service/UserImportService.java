@@ -0,0 +1,374 @@
+package cn.civer.authserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * 批量导入用户（CSV / NDJSON 流）：
+ * <ul>
+ * <li>按 batch-size 分批读取，内存占用只与批大小有关；</li>
+ * <li>每批的密码在固定大小的低优先级线程池（默认 CPU 核数的一半）上并行哈希，不占满登录校验（BoundedPasswordEncoder）
+ * 所需的核心；password_hash（BCrypt 或带 {id} 前缀的哈希）直接使用；</li>
+ * <li>每批一条 INSERT ... SELECT FROM unnest(数组) ON CONFLICT (username) DO NOTHING RETURNING，
+ * 不经过 JPA（IDENTITY 主键会关闭 Hibernate 批量插入），已存在的用户名逐行报告；</li>
+ * <li>每批独立提交，某行出错不影响其它行，错误按行号返回（最多 max-errors 条）。</li>
+ * </ul>
+ */
+@Service
+public class UserImportService implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+	private static final String INSERT_SQL = "INSERT INTO users (username, password, role, enabled) "
+			+ "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::boolean[]) "
+			+ "ON CONFLICT (username) DO NOTHING RETURNING username";
+
+	private static final Pattern BCRYPT_HASH = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+	/** PasswordEncoderConfig 中 DelegatingPasswordEncoder 支持的 {id} 前缀 */
+	private static final Pattern PREFIXED_HASH = Pattern.compile("\\A\\{(bcrypt|argon2|pbkdf2)}.+");
+
+	private static final String DEFAULT_ROLE = "ROLE_USER";
+
+	public enum Format {
+		CSV, NDJSON
+	}
+
+	private final JdbcTemplate jdbcTemplate;
+	private final PasswordEncoder passwordEncoder;
+	private final JsonMapper jsonMapper;
+	private final ExecutorService hashExecutor;
+	private final int hashThreads;
+	private final int batchSize;
+	private final int maxErrors;
+
+	public UserImportService(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder, JsonMapper jsonMapper,
+			@Value("${app.users.import.batch-size:1000}") int batchSize,
+			@Value("${app.users.import.hash-threads:0}") int hashThreads,
+			@Value("${app.users.import.max-errors:1000}") int maxErrors) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.passwordEncoder = passwordEncoder;
+		this.jsonMapper = jsonMapper;
+		this.batchSize = batchSize;
+		this.maxErrors = maxErrors;
+		this.hashThreads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		this.hashExecutor = Executors.newFixedThreadPool(this.hashThreads, Thread.ofPlatform().name("user-import-hash-", 0)
+				.priority(Thread.MIN_PRIORITY).daemon(true).factory());
+	}
+
+	@Override
+	public void destroy() {
+		hashExecutor.shutdownNow();
+	}
+
+	/**
+	 * 读取并导入整个输入流。CSV 首行为表头，列名为 username、password、password_hash、role、enabled（后三者可选）；
+	 * NDJSON 每行一个对象，字段为 username、password、passwordHash、role、enabled。
+	 */
+	public ImportReport importUsers(InputStream input, Format format) throws IOException {
+		ImportReport report = new ImportReport(maxErrors);
+		long started = System.nanoTime();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		RowParser parser = format == Format.CSV ? new CsvRowParser() : new NdjsonRowParser();
+		List<ImportRow> batch = new ArrayList<>(batchSize);
+		String line;
+		long lineNo = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNo++;
+			if (line.isBlank()) {
+				continue;
+			}
+			ImportRow row;
+			try {
+				row = parser.parse(line, lineNo);
+			} catch (Exception e) {
+				report.total++;
+				report.fail(lineNo, null, "Malformed row: " + e.getMessage());
+				continue;
+			}
+			if (row == null) {
+				continue; // CSV 表头
+			}
+			batch.add(row);
+			if (batch.size() == batchSize) {
+				importBatch(batch, report);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			importBatch(batch, report);
+		}
+		log.info("[user-import] {} rows, {} created, {} failed in {} ms", report.getTotal(), report.getCreated(),
+				report.getFailed(), (System.nanoTime() - started) / 1_000_000);
+		return report;
+	}
+
+	private void importBatch(List<ImportRow> rows, ImportReport report) {
+		List<ImportRow> valid = new ArrayList<>(rows.size());
+		Set<String> seen = new HashSet<>();
+		for (ImportRow row : rows) {
+			report.total++;
+			String error = validate(row);
+			if (error == null && !seen.add(row.username)) {
+				error = "Duplicate username in this batch";
+			}
+			if (error != null) {
+				report.fail(row.lineNo, row.username, error);
+			} else {
+				valid.add(row);
+			}
+		}
+		if (valid.isEmpty()) {
+			return;
+		}
+		String[] hashes = hashAll(valid);
+		Set<String> inserted = insert(valid, hashes);
+		for (ImportRow row : valid) {
+			if (inserted.contains(row.username)) {
+				report.created++;
+			} else {
+				report.fail(row.lineNo, row.username, "Username already exists");
+			}
+		}
+	}
+
+	private static String validate(ImportRow row) {
+		if (row.username == null || row.username.isBlank()) {
+			return "username is required";
+		}
+		if (row.passwordHash != null) {
+			return PREFIXED_HASH.matcher(row.passwordHash).matches() || BCRYPT_HASH.matcher(row.passwordHash).matches()
+					? null
+					: "password_hash must be a BCrypt hash or {bcrypt|argon2|pbkdf2}-prefixed";
+		}
+		if (row.password == null || row.password.isEmpty()) {
+			return "password or password_hash is required";
+		}
+		return null;
+	}
+
+	/** 在哈希线程池上并行计算本批密码，批内按线程数切片，每个任务处理一片。 */
+	private String[] hashAll(List<ImportRow> rows) {
+		String[] hashes = new String[rows.size()];
+		int threads = Math.max(1, Math.min(rows.size(), hashThreads));
+		int slice = (rows.size() + threads - 1) / threads;
+		List<CompletableFuture<Void>> futures = new ArrayList<>(threads);
+		for (int start = 0; start < rows.size(); start += slice) {
+			int from = start;
+			int to = Math.min(rows.size(), start + slice);
+			futures.add(CompletableFuture.runAsync(() -> {
+				for (int i = from; i < to; i++) {
+					ImportRow row = rows.get(i);
+					hashes[i] = row.passwordHash != null ? normalizeHash(row.passwordHash) : passwordEncoder.encode(row.password);
+				}
+			}, hashExecutor));
+		}
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		return hashes;
+	}
+
+	/** 不带前缀的 BCrypt 哈希补上 {bcrypt}，与编码器生成的格式一致。 */
+	private static String normalizeHash(String hash) {
+		return hash.startsWith("{") ? hash : "{bcrypt}" + hash;
+	}
+
+	private Set<String> insert(List<ImportRow> rows, String[] hashes) {
+		int n = rows.size();
+		String[] usernames = new String[n];
+		String[] roles = new String[n];
+		Boolean[] enabled = new Boolean[n];
+		for (int i = 0; i < n; i++) {
+			ImportRow row = rows.get(i);
+			usernames[i] = row.username;
+			roles[i] = row.role;
+			enabled[i] = row.enabled;
+		}
+		Set<String> inserted = new HashSet<>(n * 2);
+		jdbcTemplate.query(con -> {
+			PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+			Array usernameArray = con.createArrayOf("varchar", usernames);
+			Array passwordArray = con.createArrayOf("varchar", hashes);
+			Array roleArray = con.createArrayOf("varchar", roles);
+			Array enabledArray = con.createArrayOf("boolean", enabled);
+			ps.setArray(1, usernameArray);
+			ps.setArray(2, passwordArray);
+			ps.setArray(3, roleArray);
+			ps.setArray(4, enabledArray);
+			return ps;
+		}, rs -> {
+			inserted.add(rs.getString(1));
+		});
+		return inserted;
+	}
+
+	private interface RowParser {
+		/** 返回 null 表示该行不是数据行（如表头）。 */
+		ImportRow parse(String line, long lineNo);
+	}
+
+	private static final class CsvRowParser implements RowParser {
+
+		private Map<String, Integer> columns;
+
+		@Override
+		public ImportRow parse(String line, long lineNo) {
+			List<String> fields = splitCsv(line);
+			if (columns == null) {
+				columns = new HashMap<>();
+				for (int i = 0; i < fields.size(); i++) {
+					columns.put(fields.get(i).trim().toLowerCase(), i);
+				}
+				if (!columns.containsKey("username")) {
+					throw new IllegalArgumentException("CSV header must contain a username column");
+				}
+				return null;
+			}
+			return new ImportRow(lineNo, field(fields, "username"), field(fields, "password"),
+					field(fields, "password_hash"), field(fields, "role"), field(fields, "enabled"));
+		}
+
+		private String field(List<String> fields, String name) {
+			Integer index = columns.get(name);
+			return index != null && index < fields.size() ? fields.get(index) : null;
+		}
+
+		/** RFC 4180 的单行子集：逗号分隔，双引号包裹的字段中 "" 表示一个引号；不支持字段内换行。 */
+		private static List<String> splitCsv(String line) {
+			List<String> fields = new ArrayList<>();
+			StringBuilder current = new StringBuilder();
+			boolean quoted = false;
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if (quoted) {
+					if (c == '"') {
+						if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+							current.append('"');
+							i++;
+						} else {
+							quoted = false;
+						}
+					} else {
+						current.append(c);
+					}
+				} else if (c == '"') {
+					quoted = true;
+				} else if (c == ',') {
+					fields.add(current.toString());
+					current.setLength(0);
+				} else {
+					current.append(c);
+				}
+			}
+			if (quoted) {
+				throw new IllegalArgumentException("Unterminated quoted field");
+			}
+			fields.add(current.toString());
+			return fields;
+		}
+	}
+
+	private final class NdjsonRowParser implements RowParser {
+
+		@Override
+		public ImportRow parse(String line, long lineNo) {
+			JsonNode node = jsonMapper.readTree(line);
+			return new ImportRow(lineNo, text(node, "username"), text(node, "password"), text(node, "passwordHash"),
+					text(node, "role"), text(node, "enabled"));
+		}
+
+		private static String text(JsonNode node, String field) {
+			JsonNode value = node.get(field);
+			return value == null || value.isNull() ? null : value.asString();
+		}
+	}
+
+	private static final class ImportRow {
+		final long lineNo;
+		final String username;
+		final String password;
+		final String passwordHash;
+		final String role;
+		final boolean enabled;
+
+		ImportRow(long lineNo, String username, String password, String passwordHash, String role, String enabled) {
+			this.lineNo = lineNo;
+			this.username = username != null ? username.trim() : null;
+			this.password = password;
+			this.passwordHash = passwordHash == null || passwordHash.isBlank() ? null : passwordHash.trim();
+			this.role = role == null || role.isBlank() ? DEFAULT_ROLE : role.trim();
+			this.enabled = enabled == null || enabled.isBlank() || Boolean.parseBoolean(enabled.trim());
+		}
+	}
+
+	/** 导入结果；errors 最多保留 maxErrors 条，failed 为全部失败行数。 */
+	public static final class ImportReport {
+
+		private final int maxErrors;
+		private long total;
+		private long created;
+		private long failed;
+		private final List<RowError> errors = new ArrayList<>();
+
+		ImportReport(int maxErrors) {
+			this.maxErrors = maxErrors;
+		}
+
+		void fail(long line, String username, String message) {
+			failed++;
+			if (errors.size() < maxErrors) {
+				errors.add(new RowError(line, username, message));
+			}
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public long getCreated() {
+			return created;
+		}
+
+		public long getFailed() {
+			return failed;
+		}
+
+		public List<RowError> getErrors() {
+			return errors;
+		}
+
+		public boolean isErrorsTruncated() {
+			return failed > errors.size();
+		}
+	}
+
+	/**
+	 * @param line 输入中的行号（从 1 开始，CSV 含表头行）
+	 */
+	public record RowError(long line, String username, String message) {
+	}
+}
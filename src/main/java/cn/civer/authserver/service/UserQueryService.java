@@ -0,0 +1,105 @@
+package cn.civer.authserver.service;
+
+import cn.civer.authserver.entity.User;
+import cn.civer.authserver.repository.UserRepository;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 用户列表查询：按 id 做键集分页（WHERE id > :after ORDER BY id LIMIT n），翻页成本与页码无关，也不需要 COUNT；
+ * 用户名前缀走 users(username text_pattern_ops) 索引。导出按同样的方式分批读取，内存占用只与批大小有关。
+ */
+@Service
+public class UserQueryService {
+
+	public static final int MAX_PAGE_SIZE = 500;
+
+	private static final Sort BY_ID = Sort.by("id");
+
+	private final UserRepository userRepository;
+	private final int exportBatchSize;
+
+	public UserQueryService(UserRepository userRepository,
+			@Value("${app.users.export-batch-size:1000}") int exportBatchSize) {
+		this.userRepository = userRepository;
+		this.exportBatchSize = exportBatchSize;
+	}
+
+	/**
+	 * @param after 上一页最后一个用户的 id（即上一页的 nextCursor），首页为 null
+	 * @param size  每页条数，上限 {@link #MAX_PAGE_SIZE}
+	 */
+	public UserPage page(UserFilter filter, Long after, int size) {
+		int limit = Math.clamp(size, 1, MAX_PAGE_SIZE);
+		// 多取一条用于判断是否还有下一页
+		List<User> rows = fetch(filter, after, limit + 1);
+		if (rows.size() <= limit) {
+			return new UserPage(rows, null);
+		}
+		List<User> items = rows.subList(0, limit);
+		return new UserPage(List.copyOf(items), items.getLast().getId());
+	}
+
+	/** 按 id 顺序逐批读取全部匹配的用户，交给 consumer 处理（每批一次独立查询，不持有长事务）。 */
+	public void forEach(UserFilter filter, Consumer<List<User>> consumer) {
+		Long after = null;
+		List<User> batch;
+		do {
+			batch = fetch(filter, after, exportBatchSize);
+			if (!batch.isEmpty()) {
+				consumer.accept(batch);
+				after = batch.getLast().getId();
+			}
+		} while (batch.size() == exportBatchSize);
+	}
+
+	private List<User> fetch(UserFilter filter, Long after, int limit) {
+		return userRepository.findBy(filter.toSpecification(after), q -> q.sortBy(BY_ID).limit(limit).all());
+	}
+
+	/**
+	 * 过滤条件，均为可选。
+	 *
+	 * @param usernamePrefix 用户名前缀（区分大小写）
+	 * @param role           角色，如 ROLE_ADMIN
+	 * @param enabled        是否启用
+	 */
+	public record UserFilter(String usernamePrefix, String role, Boolean enabled) {
+
+		Specification<User> toSpecification(Long after) {
+			return (root, query, cb) -> {
+				List<Predicate> predicates = new ArrayList<>(4);
+				if (after != null) {
+					predicates.add(cb.greaterThan(root.get("id"), after));
+				}
+				if (usernamePrefix != null && !usernamePrefix.isEmpty()) {
+					predicates.add(cb.like(root.get("username"), escapeLike(usernamePrefix) + "%", '\\'));
+				}
+				if (role != null && !role.isEmpty()) {
+					predicates.add(cb.equal(root.get("role"), role));
+				}
+				if (enabled != null) {
+					predicates.add(cb.equal(root.get("enabled"), enabled));
+				}
+				return cb.and(predicates.toArray(Predicate[]::new));
+			};
+		}
+
+		private static String escapeLike(String value) {
+			return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+		}
+	}
+
+	/**
+	 * @param nextCursor 下一页的 after 参数；为 null 表示没有下一页
+	 */
+	public record UserPage(List<User> items, Long nextCursor) {
+	}
+}
@@ -52,9 +52,183 @@ CREATE TABLE IF NOT EXISTS oauth2_authorization (
     PRIMARY KEY (id)
 );
 
+-- 行创建时间：尚未签发任何 token 的授权（同意进行中）据此过期；JdbcOAuth2AuthorizationService 不写此列，由默认值填充
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS created_at timestamp DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+-- 过期清理（AuthorizationReaper）按各 token 到期时间的最大值查找过期行；表达式须与 AuthorizationReaper.EXPIRES_AT 一致
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_expires ON oauth2_authorization (
+    (COALESCE(GREATEST(authorization_code_expires_at, access_token_expires_at, refresh_token_expires_at,
+        oidc_id_token_expires_at, device_code_expires_at, user_code_expires_at), created_at)));
+
+-- token 值的 SHA-256 摘要（HashIndexedAuthorizationService 写入并按摘要查找）：token 值本身是很长的 text，不适合直接建索引。
+-- 旧行 token_hash_version 为 NULL，由后台分批补算；可空列不带默认值，ALTER 只改元数据，不重写表
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS state_hash bytea;
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS authorization_code_hash bytea;
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS access_token_hash bytea;
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS oidc_id_token_hash bytea;
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS refresh_token_hash bytea;
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS user_code_hash bytea;
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS device_code_hash bytea;
+ALTER TABLE oauth2_authorization ADD COLUMN IF NOT EXISTS token_hash_version smallint;
+
+-- 表已很大时，建议先在库上手工执行对应的 CREATE INDEX CONCURRENTLY（同名），避免启动时建索引期间阻塞写入
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_state_hash ON oauth2_authorization (state_hash) WHERE state_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_code_hash ON oauth2_authorization (authorization_code_hash) WHERE authorization_code_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_access_token_hash ON oauth2_authorization (access_token_hash) WHERE access_token_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_id_token_hash ON oauth2_authorization (oidc_id_token_hash) WHERE oidc_id_token_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_refresh_token_hash ON oauth2_authorization (refresh_token_hash) WHERE refresh_token_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_user_code_hash ON oauth2_authorization (user_code_hash) WHERE user_code_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_device_code_hash ON oauth2_authorization (device_code_hash) WHERE device_code_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_unhashed ON oauth2_authorization (id) WHERE token_hash_version IS NULL;
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_principal ON oauth2_authorization (principal_name);
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_client ON oauth2_authorization (registered_client_id);
+
+-- refresh token 轮换的家族记录（RefreshTokenFamilyService）：每个授权签发过的 refresh token 摘要，superseded_at 非空表示已被轮换；
+-- 授权删除（吊销、过期清理、删除客户端）时级联删除
+CREATE TABLE IF NOT EXISTS oauth2_refresh_token_family (
+    token_hash bytea PRIMARY KEY,
+    authorization_id varchar(100) NOT NULL REFERENCES oauth2_authorization (id) ON DELETE CASCADE,
+    superseded_at timestamptz DEFAULT NULL,
+    expires_at timestamptz DEFAULT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_family_authorization ON oauth2_refresh_token_family (authorization_id);
+
+-- 两列由各节点以 Instant 写入并与其他节点写入的值比较，须带时区；早期建成 timestamp 的表转换一次
+DO '
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = ''oauth2_refresh_token_family'' AND column_name = ''superseded_at'')
+            = ''timestamp without time zone'' THEN
+        ALTER TABLE oauth2_refresh_token_family ALTER COLUMN superseded_at TYPE timestamptz,
+            ALTER COLUMN expires_at TYPE timestamptz;
+    END IF;
+END';
+
 CREATE TABLE IF NOT EXISTS oauth2_authorization_consent (
     registered_client_id varchar(100) NOT NULL,
     principal_name varchar(200) NOT NULL,
     authorities varchar(1000) NOT NULL,
     PRIMARY KEY (registered_client_id, principal_name)
 );
+
+-- Back-Channel Logout 发件箱：与删除 consent 同一事务写入，由后台 worker 投递、退避重试，超过次数后 status = 'DEAD'
+CREATE TABLE IF NOT EXISTS oauth2_logout_outbox (
+    id bigserial NOT NULL,
+    event_id varchar(100) NOT NULL,
+    principal_name varchar(200) NOT NULL,
+    issuer varchar(500) NOT NULL,
+    client_id varchar(100) NOT NULL,
+    endpoint varchar(1000) NOT NULL,
+    status varchar(20) DEFAULT 'PENDING' NOT NULL,
+    attempts int DEFAULT 0 NOT NULL,
+    next_attempt_at timestamptz DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    last_error varchar(1000) DEFAULT NULL,
+    created_at timestamptz DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- next_attempt_at 由各节点写入并与 CURRENT_TIMESTAMP 比较，须带时区：否则 JVM 时区不同的节点会把其他节点写入的行
+-- 看成提前或推迟了若干小时。早期建成 timestamp 的表按会话时区转换一次
+DO '
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = ''oauth2_logout_outbox'' AND column_name = ''next_attempt_at'')
+            = ''timestamp without time zone'' THEN
+        ALTER TABLE oauth2_logout_outbox ALTER COLUMN next_attempt_at TYPE timestamptz,
+            ALTER COLUMN created_at TYPE timestamptz;
+    END IF;
+END';
+
+CREATE INDEX IF NOT EXISTS idx_logout_outbox_due ON oauth2_logout_outbox (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_logout_outbox_event ON oauth2_logout_outbox (event_id) WHERE status = 'PENDING';
+
+-- JWT 签名密钥（所有节点共享）：activate_at 之前只发布不签名，被替换后保留 app.jwk.retention 再删除；jwk 在配置了 app.jwk.encryption 时为密文
+CREATE TABLE IF NOT EXISTS oauth2_jwk (
+    kid varchar(100) NOT NULL,
+    jwk text NOT NULL,
+    encrypted boolean DEFAULT false NOT NULL,
+    activate_at timestamptz NOT NULL,
+    created_at timestamptz DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY (kid)
+);
+
+-- activate_at 由各节点以 Instant 写入，须带时区，否则其含义取决于写入节点的 JVM 时区（created_at 同理）。
+-- 旧库按会话时区（即写入时 JVM 的时区）转换；已是 timestamptz 时不执行，避免每次启动都对表加排他锁
+DO '
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = ''oauth2_jwk'' AND column_name = ''activate_at'')
+            = ''timestamp without time zone'' THEN
+        ALTER TABLE oauth2_jwk ALTER COLUMN activate_at TYPE timestamptz;
+    END IF;
+    IF (SELECT data_type FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = ''oauth2_jwk'' AND column_name = ''created_at'')
+            = ''timestamp without time zone'' THEN
+        ALTER TABLE oauth2_jwk ALTER COLUMN created_at TYPE timestamptz;
+    END IF;
+END';
+
+-- 签名算法（app.jwk.algorithm）；修改配置后按新算法轮换
+ALTER TABLE oauth2_jwk ADD COLUMN IF NOT EXISTS algorithm varchar(16) DEFAULT 'RS256' NOT NULL;
+
+-- users 由 Hibernate 建表（spring.jpa.defer-datasource-initialization 保证本脚本在其之后执行）；
+-- 用户名前缀过滤（LIKE 'abc%'）使用 text_pattern_ops 索引，与排序规则无关
+CREATE INDEX IF NOT EXISTS idx_users_username_pattern ON users (username text_pattern_ops);
+
+-- 管理端列表的版本号（TableVersionService）：表内容每次实际变化 version 加 1，列表接口据此生成 ETag，未变化时返回 304 而不查询列表；
+-- epoch 在行创建时随机生成，库重建后旧 ETag 不会误命中
+CREATE TABLE IF NOT EXISTS app_table_version (
+    table_name varchar(100) NOT NULL,
+    epoch uuid DEFAULT gen_random_uuid() NOT NULL,
+    version bigint DEFAULT 0 NOT NULL,
+    PRIMARY KEY (table_name)
+);
+INSERT INTO app_table_version (table_name) VALUES ('users'), ('oauth2_registered_client') ON CONFLICT (table_name) DO NOTHING;
+
+-- 语句级触发器，通过转换表（REFERENCING）判断本条语句是否真的改了行：影响 0 行的语句不加版本号，
+-- 也就不去锁 app_table_version 的这一行（该行锁持有到事务提交，会让同表的其他写入排队）。
+-- UPDATE 触发器的参数为列表接口不返回的列（如 users.password），只改这些列的语句（登录时的哈希升级）同样不加版本号。
+-- 转换表的触发器只能对应一种事件，因此每个表按 INSERT / UPDATE / DELETE / TRUNCATE 各建一个。
+-- 函数体用单引号而非 $$ 包裹：spring.sql.init 按分号切分语句，只识别单引号字符串
+CREATE OR REPLACE FUNCTION app_bump_table_version() RETURNS trigger LANGUAGE plpgsql AS '
+BEGIN
+    IF TG_OP = ''INSERT'' THEN
+        IF NOT EXISTS (SELECT 1 FROM new_rows) THEN
+            RETURN NULL;
+        END IF;
+    ELSIF TG_OP = ''DELETE'' THEN
+        IF NOT EXISTS (SELECT 1 FROM old_rows) THEN
+            RETURN NULL;
+        END IF;
+    ELSIF TG_OP = ''UPDATE'' THEN
+        IF NOT EXISTS (SELECT to_jsonb(n) - COALESCE(TG_ARGV, ''{}''::text[]) FROM new_rows n
+                EXCEPT SELECT to_jsonb(o) - COALESCE(TG_ARGV, ''{}''::text[]) FROM old_rows o) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE app_table_version SET version = version + 1 WHERE table_name = TG_TABLE_NAME;
+    RETURN NULL;
+END';
+
+-- CREATE OR REPLACE TRIGGER 需要 PostgreSQL 14 及以上（多个节点同时启动时不会像 DROP + CREATE 那样互相冲突）；
+-- 早期版本的合并触发器不再使用
+DROP TRIGGER IF EXISTS trg_users_version ON users;
+DROP TRIGGER IF EXISTS trg_oauth2_registered_client_version ON oauth2_registered_client;
+
+CREATE OR REPLACE TRIGGER trg_users_version_insert AFTER INSERT ON users
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version();
+CREATE OR REPLACE TRIGGER trg_users_version_update AFTER UPDATE ON users
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version('password');
+CREATE OR REPLACE TRIGGER trg_users_version_delete AFTER DELETE ON users
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version();
+CREATE OR REPLACE TRIGGER trg_users_version_truncate AFTER TRUNCATE ON users
+    FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version();
+
+CREATE OR REPLACE TRIGGER trg_oauth2_registered_client_version_insert AFTER INSERT ON oauth2_registered_client
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version();
+CREATE OR REPLACE TRIGGER trg_oauth2_registered_client_version_update AFTER UPDATE ON oauth2_registered_client
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version();
+CREATE OR REPLACE TRIGGER trg_oauth2_registered_client_version_delete AFTER DELETE ON oauth2_registered_client
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version();
+CREATE OR REPLACE TRIGGER trg_oauth2_registered_client_version_truncate AFTER TRUNCATE ON oauth2_registered_client
+    FOR EACH STATEMENT EXECUTE FUNCTION app_bump_table_version();